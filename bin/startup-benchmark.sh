@@ -0,0 +1,79 @@
+#!/usr/bin/env bash
+#
+# Startup time and time to first payment of the service, started as the plain jar, with the
+# Spring AOT processed context, and with AOT plus the class-data sharing archive.
+#
+#   started        launch until Spring reports "Started Main"
+#   first payment  launch until a transfer between two new accounts is TRANSACTION_COMPLETED,
+#                  through the Kalix runtime, so it includes the runtime discovering the service
+#
+# Prerequisites, from the project root:
+#   docker compose up -d                      # Kalix runtime on ADVERTISED_HTTP_PORT
+#   TRAINING_RUNTIME_URL=http://localhost:$ADVERTISED_HTTP_PORT mvn package -Pfast-start -DskipTests
+#                                             # jar, target/dependency and target/app.jsa trained on a payment
+#
+# Usage: bin/startup-benchmark.sh [runs per variant, default 5]
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+source .env
+
+RUNS=${1:-5}
+RUNTIME=http://localhost:${ADVERTISED_HTTP_PORT}
+JAR=$(ls target/*.jar | grep -v -e sources -e javadoc | head -n 1)
+ARCHIVE=target/app.jsa
+LOG=target/startup-benchmark.log
+
+[[ -f "$JAR" && -f "$ARCHIVE" ]] || { echo "Build first with: mvn package -Pfast-start -DskipTests" >&2; exit 1; }
+curl -s -o /dev/null "$RUNTIME" || { echo "No Kalix runtime on $RUNTIME, start it with: docker compose up -d" >&2; exit 1; }
+
+declare -A VARIANTS=(
+  [jar]=""
+  [aot]="-Dspring.aot.enabled=true"
+  [aot+cds]="-Dspring.aot.enabled=true -XX:SharedArchiveFile=$ARCHIVE -Xshare:auto"
+)
+
+now() { date +%s%3N; }
+
+median() { sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'; }
+
+# one run: prints "<started ms> <first payment ms>"
+run() {
+  local flags=$1 id=$RANDOM$RANDOM
+  local start=$(now) started="" done=""
+
+  # shellcheck disable=SC2086
+  java $flags -jar "$JAR" > "$LOG" 2>&1 &
+  local pid=$!
+
+  until [[ -n "$started" ]]; do
+    grep -q "Started Main" "$LOG" && started=$(( $(now) - start ))
+    kill -0 "$pid" 2>/dev/null || { echo "Service exited, see $LOG" >&2; exit 1; }
+    sleep 0.01
+  done
+
+  until curl -sf -o /dev/null -X POST "$RUNTIME/account/a-$id/create/100"; do sleep 0.01; done
+  curl -sf -o /dev/null -X POST "$RUNTIME/account/b-$id/create/100"
+  curl -sf -o /dev/null -X POST "$RUNTIME/transaction/tx-$id/process/a-$id/b-$id/10"
+
+  until [[ -n "$done" ]]; do
+    curl -s "$RUNTIME/transaction/tx-$id" | grep -q TRANSACTION_COMPLETED && done=$(( $(now) - start ))
+    sleep 0.01
+  done
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  sleep 2 # let the runtime notice the service is gone
+  echo "$started $done"
+}
+
+printf "%-10s %14s %20s\n" variant "started (ms)" "first payment (ms)"
+for variant in jar aot aot+cds; do
+  results=()
+  for ((i = 0; i < RUNS; i++)); do results+=("$(run "${VARIANTS[$variant]}")"); done
+  started=$(printf "%s\n" "${results[@]}" | cut -d' ' -f1 | median)
+  payment=$(printf "%s\n" "${results[@]}" | cut -d' ' -f2 | median)
+  printf "%-10s %14s %20s\n" "$variant" "$started" "$payment"
+done
+echo "medians of $RUNS runs each"
@@ -0,0 +1,34 @@
+package com.example;
+
+import com.example.util.BlockingWatchdog;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Fails a test when code of this service blocked an SDK dispatcher thread while it ran, see
+ * {@link BlockingWatchdog}. The watchdog is started whatever the configuration says.
+ */
+public class BlockingWatchdogExtension implements BeforeAllCallback, AfterEachCallback {
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        BlockingWatchdog.start();
+        BlockingWatchdog.drain();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        var blockings = BlockingWatchdog.drain();
+        if (blockings.isEmpty()) return;
+
+        var report = new StringBuilder()
+            .append(blockings.size()).append(" blocking call(s) on SDK dispatcher threads during ")
+            .append(context.getDisplayName());
+        for (BlockingWatchdog.Blocking blocking : blockings)
+            report.append("\n\n").append(blocking.thread()).append(" blocked for ").append(blocking.millis())
+                .append("ms at ").append(blocking.frame()).append('\n').append(blocking.stack());
+        throw new AssertionError(report.toString());
+    }
+
+}
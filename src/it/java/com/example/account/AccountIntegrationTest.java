@@ -0,0 +1,209 @@
+package com.example.account;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Commands replayed with the same transaction id, as a retried workflow step sends them, are
+ * acknowledged again and applied once.
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class AccountIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private Duration timeout = Duration.of(10, SECONDS);
+
+    @Test
+    public void shouldApplyReplayedDepositOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+
+        for (int i = 0; i < 3; i++) {
+            var result = execute(componentClient
+                .forEventSourcedEntity(accountId)
+                .call(Account::deposit)
+                .params(txId, 30));
+            assertThat(result).isInstanceOf(Account.DepositResult.DepositSucceed.class);
+        }
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(130);
+    }
+
+    @Test
+    public void shouldSkipReplayedCreditsInDepositBatch() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var first = randomId();
+        var second = randomId();
+        execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::deposit)
+            .params(first, 10));
+
+        var result = execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::depositBatch)
+            .params(new Account.Credits(List.of(
+                new Account.Credit(first, 10),
+                new Account.Credit(second, 20),
+                new Account.Credit(second, 20)))));
+
+        assertThat(result).isInstanceOf(Account.DepositResult.DepositSucceed.class);
+        assertThat(getAccountBalance(accountId)).isEqualTo(130);
+    }
+
+    /**
+     * A batch flushed again after a timeout, together with credits that arrived since.
+     */
+    @Test
+    public void shouldApplyCreditsOfReplayedBatchOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 0);
+        var first = new Account.Credit(randomId(), 10);
+        var second = new Account.Credit(randomId(), 20);
+        var later = new Account.Credit(randomId(), 40);
+
+        for (var credits : List.of(List.of(first, second), List.of(first, second, later), List.of(second, later))) {
+            var result = execute(componentClient
+                .forEventSourcedEntity(accountId)
+                .call(Account::depositBatch)
+                .params(new Account.Credits(credits)));
+            assertThat(result).isInstanceOf(Account.DepositResult.DepositSucceed.class);
+        }
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(70);
+    }
+
+    @Test
+    public void shouldApplyReplayedWithdrawalOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+
+        for (int i = 0; i < 3; i++) {
+            var result = execute(componentClient
+                .forEventSourcedEntity(accountId)
+                .call(Account::withdraw)
+                .params(txId, 30));
+            assertThat(result).isInstanceOf(Account.WithdrawResult.WithdrawSucceed.class);
+        }
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(70);
+    }
+
+    @Test
+    public void shouldCaptureReplayedHoldOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        placeHold(accountId, txId, 30);
+        placeHold(accountId, txId, 30);
+
+        for (int i = 0; i < 3; i++)
+            assertThat(captureHold(accountId, txId)).isInstanceOf(Account.HoldResult.HoldSucceed.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(70);
+        assertThat(verifyFunds(accountId, 70)).isTrue();
+    }
+
+    @Test
+    public void shouldReleaseReplayedHoldOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        placeHold(accountId, txId, 30);
+        assertThat(verifyFunds(accountId, 100)).isFalse();
+
+        for (int i = 0; i < 3; i++)
+            assertThat(releaseHold(accountId, txId)).isInstanceOf(Account.HoldResult.HoldSucceed.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+        assertThat(verifyFunds(accountId, 100)).isTrue();
+    }
+
+    @Test
+    public void shouldNotCaptureReleasedHold() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        placeHold(accountId, txId, 30);
+        releaseHold(accountId, txId);
+
+        assertThat(captureHold(accountId, txId)).isInstanceOf(Account.HoldResult.HoldFailed.class);
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+    }
+
+    private String randomId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private void createAccount(String accountId, int amount) {
+        String response = execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::create)
+            .params(accountId, amount));
+
+        assertThat(response).contains("ok");
+    }
+
+    private void placeHold(String accountId, String txId, int amount) {
+        var result = execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::placeHold)
+            .params(txId, amount));
+
+        assertThat(result).isInstanceOf(Account.HoldResult.HoldSucceed.class);
+    }
+
+    private Account.HoldResult captureHold(String accountId, String txId) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::captureHold)
+            .params(txId));
+    }
+
+    private Account.HoldResult releaseHold(String accountId, String txId) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::releaseHold)
+            .params(txId));
+    }
+
+    private int getAccountBalance(String accountId) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::get));
+    }
+
+    private boolean verifyFunds(String accountId, int amount) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::verifyFunds)
+            .params(amount));
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
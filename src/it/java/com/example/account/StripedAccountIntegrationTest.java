@@ -0,0 +1,197 @@
+package com.example.account;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.example.mock.Liquidity;
+import com.example.transaction.TransactionWorkflow;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Striped accounts, each test with its own account of 4 shards, configured in the it profile
+ * of the pom. Funds are deposited with random transaction ids, so they end up spread over the
+ * shards, and then taken with a single transaction that needs funds from several shards.
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class StripedAccountIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private Duration timeout = Duration.of(10, SECONDS);
+
+    @Test
+    public void shouldAggregateShardBalances() {
+        var accountId = createStripedAccount("striped-balance", 100);
+        deposit(accountId, 20, 5);
+
+        assertThat(getBalance(accountId)).isEqualTo(200);
+        assertThat(shardBalances(accountId)).isEqualTo(200);
+        assertThat(fundedShards(accountId)).isGreaterThan(1);
+    }
+
+    @Test
+    public void shouldRebalanceWithdrawalAcrossShards() {
+        var accountId = createStripedAccount("striped-withdraw", 0);
+        deposit(accountId, 40, 10);
+        var txId = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 2; i++) {
+            var result = execute(componentClient
+                .forAction()
+                .call(StripedAccount::withdraw)
+                .params(accountId, txId, 300));
+            assertThat(result).isInstanceOf(Account.WithdrawResult.WithdrawSucceed.class);
+        }
+
+        assertThat(getBalance(accountId)).isEqualTo(100);
+        assertThat(shardBalances(accountId)).isEqualTo(100);
+    }
+
+    /**
+     * Moving funds into the shard of the hold leaves the balance of the account unchanged.
+     */
+    @Test
+    public void shouldReserveFundsFromSeveralShards() {
+        var accountId = createStripedAccount("striped-hold", 0);
+        deposit(accountId, 40, 10);
+        var txId = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 2; i++) {
+            var result = execute(componentClient
+                .forAction()
+                .call(Liquidity::reserve)
+                .params(new Liquidity.Verify.Funds(txId, accountId, 300)));
+            assertThat(result).isInstanceOf(Liquidity.LiquidityResult.Approved.class);
+        }
+
+        assertThat(getBalance(accountId)).isEqualTo(400);
+        assertThat(shardBalances(accountId)).isEqualTo(400);
+        var shard = Striping.shardFor(accountId, txId);
+        assertThat(execute(componentClient.forEventSourcedEntity(shard).call(Account::get))).isGreaterThanOrEqualTo(300);
+        assertThat(availableFunds(accountId)).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldPayFromStripedSource() {
+        var source = createStripedAccount("striped-payment", 0);
+        deposit(source, 20, 10);
+        var destination = UUID.randomUUID().toString().substring(0, 8);
+        execute(componentClient
+            .forEventSourcedEntity(destination)
+            .call(Account::create)
+            .params(destination, 0));
+
+        execute(componentClient
+            .forWorkflow(UUID.randomUUID().toString().substring(0, 8))
+            .call(TransactionWorkflow::process)
+            .params(source, destination, 150));
+
+        await()
+            .atMost(10, TimeUnit.of(SECONDS))
+            .untilAsserted(() -> {
+                assertThat(execute(componentClient.forEventSourcedEntity(destination).call(Account::get))).isEqualTo(150);
+                assertThat(getBalance(source)).isEqualTo(50);
+            });
+    }
+
+    /**
+     * A move whose deposit never reached the target is left pending on the donor, and
+     * finished once, however often the moves of the account are recovered.
+     */
+    @Test
+    public void shouldFinishPendingMove() {
+        var accountId = createStripedAccount("striped-recovery", 100);
+        var donor = Striping.primary(accountId);
+        var txId = UUID.randomUUID().toString();
+        while (Striping.shardFor(accountId, txId).equals(donor)) txId = UUID.randomUUID().toString();
+        var target = Striping.shardFor(accountId, txId);
+        execute(componentClient
+            .forEventSourcedEntity(donor)
+            .call(Account::withdraw)
+            .params(ShardRebalancer.moveId(txId, donor, 40), 40));
+        assertThat(getBalance(accountId)).isEqualTo(60);
+
+        for (int i = 0; i < 2; i++)
+            assertThat(execute(componentClient
+                .forAction()
+                .call(StripedAccount::recoverMoves)
+                .params(accountId))).contains("ok");
+
+        assertThat(getBalance(accountId)).isEqualTo(100);
+        assertThat(execute(componentClient.forEventSourcedEntity(target).call(Account::get))).isEqualTo(40);
+        for (int shard = 0; shard < Striping.shards(accountId); shard++) {
+            var moves = execute(componentClient.forEventSourcedEntity(Striping.shardId(accountId, shard)).call(Account::pendingMoves));
+            assertThat(moves.debits()).isEmpty();
+            assertThat(moves.credits()).isEmpty();
+        }
+    }
+
+    private String createStripedAccount(String accountId, int initBalance) {
+        assertThat(Striping.shards(accountId)).as("shards of " + accountId).isEqualTo(4);
+        var response = execute(componentClient
+            .forAction()
+            .call(StripedAccount::create)
+            .params(accountId, initBalance));
+        assertThat(response).contains("ok");
+        return accountId;
+    }
+
+    private void deposit(String accountId, int deposits, int amount) {
+        for (int i = 0; i < deposits; i++) {
+            var result = execute(componentClient
+                .forAction()
+                .call(StripedAccount::deposit)
+                .params(accountId, UUID.randomUUID().toString(), amount));
+            assertThat(result).isInstanceOf(Account.DepositResult.DepositSucceed.class);
+        }
+    }
+
+    private int getBalance(String accountId) {
+        return execute(componentClient
+            .forAction()
+            .call(StripedAccount::get)
+            .params(accountId));
+    }
+
+    private int shardBalances(String accountId) {
+        var total = 0;
+        for (int shard = 0; shard < Striping.shards(accountId); shard++)
+            total += execute(componentClient.forEventSourcedEntity(Striping.shardId(accountId, shard)).call(Account::get));
+        return total;
+    }
+
+    private int availableFunds(String accountId) {
+        var total = 0;
+        for (int shard = 0; shard < Striping.shards(accountId); shard++)
+            total += execute(componentClient.forEventSourcedEntity(Striping.shardId(accountId, shard)).call(Account::available));
+        return total;
+    }
+
+    private int fundedShards(String accountId) {
+        var funded = 0;
+        for (int shard = 0; shard < Striping.shards(accountId); shard++)
+            if (execute(componentClient.forEventSourcedEntity(Striping.shardId(accountId, shard)).call(Account::get)) > 0) funded++;
+        return funded;
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.account;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deposit throughput into a single hot account at growing shard counts. Every shard count is
+ * a separate striped account, configured in the it profile of the pom.
+ *
+ *   mvn verify -Pit -Dit.test=StripedAccountThroughputIntegrationTest -Dstriping.deposits=5000
+ *
+ * - striping.deposits     deposits per shard count (default 400)
+ * - striping.concurrency  maximum deposits in flight (default 64)
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class StripedAccountThroughputIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(StripedAccountThroughputIntegrationTest.class);
+
+    private static final int[] SHARD_COUNTS = {1, 2, 4, 8};
+
+    private final int deposits = Integer.getInteger("striping.deposits", 400);
+    private final int concurrency = Integer.getInteger("striping.concurrency", 64);
+
+    @Test
+    public void shouldScaleDepositsWithShards() throws InterruptedException {
+        for (int shards : SHARD_COUNTS) {
+            var accountId = accountId(shards);
+            assertThat(Striping.shards(accountId)).isEqualTo(shards);
+            execute(componentClient
+                .forAction()
+                .call(StripedAccount::create)
+                .params(accountId, 0));
+
+            var inFlight = new Semaphore(concurrency);
+            var done = new CountDownLatch(deposits);
+            var start = System.nanoTime();
+            for (int i = 0; i < deposits; i++) {
+                inFlight.acquire();
+                componentClient
+                    .forAction()
+                    .call(StripedAccount::deposit)
+                    .params(accountId, UUID.randomUUID().toString(), 1)
+                    .execute()
+                    .whenComplete((result, error) -> {
+                        inFlight.release();
+                        done.countDown();
+                    });
+            }
+            assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+            var elapsedNanos = System.nanoTime() - start;
+
+            var balance = execute(componentClient
+                .forAction()
+                .call(StripedAccount::get)
+                .params(accountId));
+            assertThat(balance).isEqualTo(deposits);
+
+            log.info("{} shards: {} deposits in {} ms, {} deposits/s",
+                shards, deposits,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                "%.1f".formatted(deposits * 1e9 / elapsedNanos));
+        }
+    }
+
+    private static String accountId(int shards) {
+        return "striped-" + shards;
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.mock;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.example.account.Account;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The reconciliation run after a clearing failed without an answer, against a clearing that
+ * deposited and one that only captured the hold. Every reconciliation is sent twice, as a
+ * retried step would.
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class ClearingIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private Duration timeout = Duration.of(10, SECONDS);
+
+    @Test
+    public void shouldCompleteClearingThatDeposited() {
+        var source = randomId();
+        var destination = randomId();
+        createAccount(source, 100);
+        createAccount(destination, 0);
+        var txId = randomId();
+        reserve(source, txId, 30);
+        var funds = new Clearing.Clear.Funds(txId, destination, 30, source, source);
+        assertThat(execute(componentClient.forAction().call(Clearing::clear).params(funds)))
+            .isInstanceOf(Clearing.ClearingResult.Accepted.class);
+
+        for (int i = 0; i < 2; i++)
+            assertThat(reconcile(funds)).isInstanceOf(Clearing.ClearingResult.Accepted.class);
+
+        assertThat(getAccountBalance(source)).isEqualTo(70);
+        assertThat(getAccountBalance(destination)).isEqualTo(30);
+        assertThat(reverse(source, txId)).isInstanceOf(Posting.PostResult.Rejected.class);
+    }
+
+    /**
+     * The capture went through but not the deposit: the deposit is refused from then on, so
+     * a clearing still in flight cannot credit the destination once the source is refunded.
+     */
+    @Test
+    public void shouldRefuseDepositNotMade() {
+        var source = randomId();
+        var destination = randomId();
+        createAccount(source, 100);
+        createAccount(destination, 0);
+        var txId = randomId();
+        reserve(source, txId, 30);
+        execute(componentClient
+            .forEventSourcedEntity(source)
+            .call(Account::captureHold)
+            .params(txId));
+        var funds = new Clearing.Clear.Funds(txId, destination, 30, source, source);
+
+        for (int i = 0; i < 2; i++)
+            assertThat(reconcile(funds)).isInstanceOf(Clearing.ClearingResult.Rejected.class);
+        assertThat(execute(componentClient.forAction().call(Clearing::clear).params(funds)))
+            .isInstanceOf(Clearing.ClearingResult.Rejected.class);
+        assertThat(reverse(source, txId)).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(getAccountBalance(source)).isEqualTo(100);
+        assertThat(getAccountBalance(destination)).isEqualTo(0);
+    }
+
+    private String randomId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private void createAccount(String accountId, int amount) {
+        String response = execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::create)
+            .params(accountId, amount));
+
+        assertThat(response).contains("ok");
+    }
+
+    private void reserve(String accountId, String txId, int amount) {
+        var reserved = execute(componentClient
+            .forAction()
+            .call(Liquidity::reserve)
+            .params(new Liquidity.Verify.Funds(txId, accountId, amount)));
+
+        assertThat(reserved).isInstanceOf(Liquidity.LiquidityResult.Approved.class);
+    }
+
+    private Clearing.ClearingResult reconcile(Clearing.Clear.Funds funds) {
+        return execute(componentClient
+            .forAction()
+            .call(Clearing::reconcile)
+            .params(funds));
+    }
+
+    private Posting.PostResult reverse(String accountId, String txId) {
+        return execute(componentClient
+            .forAction()
+            .call(Posting::reversal)
+            .params(new Posting.Post.Reversal(txId, accountId, 30)));
+    }
+
+    private int getAccountBalance(String accountId) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::get));
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.mock;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.example.account.Account;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The reversal run by the compensate step, against the ways a transaction can have left the
+ * source account before it: hold in place, hold already released, nothing on record, funds
+ * withdrawn, captured or settled. Reversals that succeed are sent twice, as a retried compensation would.
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class PostingIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private Duration timeout = Duration.of(10, SECONDS);
+
+    @Test
+    public void shouldReleaseHeldFundsOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        reserve(accountId, txId, 30);
+        assertThat(verifyFunds(accountId, 100)).isFalse();
+
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+        assertThat(verifyFunds(accountId, 100)).isTrue();
+    }
+
+    @Test
+    public void shouldNotRefundAfterRelease() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        reserve(accountId, txId, 30);
+        execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::releaseHold)
+            .params(txId));
+
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+    }
+
+    /**
+     * The account cannot tell whether a transaction it has no record of took anything, so
+     * the reversal is rejected rather than reported as compensated.
+     */
+    @Test
+    public void shouldRejectReversalOfUnknownTransaction() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Rejected.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldRefundCapturedHoldOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        reserve(accountId, txId, 30);
+        execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::captureHold)
+            .params(txId));
+        assertThat(getAccountBalance(accountId)).isEqualTo(70);
+
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldRefundWithdrawalOnce() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        var posted = execute(componentClient
+            .forAction()
+            .call(Posting::post)
+            .params(new Posting.Post.Funds(txId, accountId, 30)));
+        assertThat(posted).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(100);
+    }
+
+    /**
+     * The refund is the debit the account recorded, whatever amount the reversal asks for,
+     * and it is still on record after many newer transactions on the account.
+     */
+    @Test
+    public void shouldRefundRecordedDebitAfterNewerTransactions() {
+        var accountId = randomId();
+        createAccount(accountId, 1000);
+        var txId = randomId();
+        var posted = execute(componentClient
+            .forAction()
+            .call(Posting::post)
+            .params(new Posting.Post.Funds(txId, accountId, 30)));
+        assertThat(posted).isInstanceOf(Posting.PostResult.Approved.class);
+        for (int i = 0; i < 300; i++)
+            execute(componentClient
+                .forEventSourcedEntity(accountId)
+                .call(Account::deposit)
+                .params(randomId(), 1));
+
+        assertThat(reverse(accountId, txId, 500)).isInstanceOf(Posting.PostResult.Approved.class);
+        assertThat(reverse(accountId, txId, 500)).isInstanceOf(Posting.PostResult.Approved.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(1300);
+    }
+
+    @Test
+    public void shouldNotRefundSettledTransaction() {
+        var accountId = randomId();
+        createAccount(accountId, 100);
+        var txId = randomId();
+        execute(componentClient
+            .forAction()
+            .call(Posting::post)
+            .params(new Posting.Post.Funds(txId, accountId, 30)));
+        execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::settle)
+            .params(txId));
+
+        assertThat(reverse(accountId, txId, 30)).isInstanceOf(Posting.PostResult.Rejected.class);
+
+        assertThat(getAccountBalance(accountId)).isEqualTo(70);
+    }
+
+    private String randomId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private void createAccount(String accountId, int amount) {
+        String response = execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::create)
+            .params(accountId, amount));
+
+        assertThat(response).contains("ok");
+    }
+
+    private void reserve(String accountId, String txId, int amount) {
+        var reserved = execute(componentClient
+            .forAction()
+            .call(Liquidity::reserve)
+            .params(new Liquidity.Verify.Funds(txId, accountId, amount)));
+
+        assertThat(reserved).isInstanceOf(Liquidity.LiquidityResult.Approved.class);
+    }
+
+    private Posting.PostResult reverse(String accountId, String txId, int amount) {
+        return execute(componentClient
+            .forAction()
+            .call(Posting::reversal)
+            .params(new Posting.Post.Reversal(txId, accountId, amount)));
+    }
+
+    private int getAccountBalance(String accountId) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::get));
+    }
+
+    private boolean verifyFunds(String accountId, int amount) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::verifyFunds)
+            .params(amount));
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
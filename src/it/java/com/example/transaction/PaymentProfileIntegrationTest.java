@@ -0,0 +1,170 @@
+package com.example.transaction;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.example.account.Account;
+import com.example.account.Striping;
+import com.example.transaction.TransactionWorkflow.State;
+import com.example.transaction.TransactionWorkflow.State.StepEntry;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.example.transaction.TransactionWorkflow.State.Status.*;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Payments along each configured payment profile, completed and compensated.
+ *
+ * Clearing is rejected by crediting a striped account, configured in the it profile of the
+ * pom, of which only the primary shard exists, with a transaction addressing another shard.
+ * Validation only checks the primary shard, so the payment gets as far as clearing.
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class PaymentProfileIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private static final String INCOMPLETE_ACCOUNT = "striped-incomplete";
+
+    private Duration timeout = Duration.of(10, SECONDS);
+
+    @Test
+    public void shouldCompleteStandardPayment() {
+        shouldComplete("standard");
+    }
+
+    @Test
+    public void shouldCompensateStandardPayment() {
+        shouldCompensateRejectedClearing("standard");
+    }
+
+    @Test
+    public void shouldCompleteBookTransfer() {
+        shouldComplete("book-transfer");
+    }
+
+    @Test
+    public void shouldCompensateBookTransfer() {
+        shouldCompensateRejectedClearing("book-transfer");
+    }
+
+    @Test
+    public void shouldCompleteHighValuePayment() {
+        shouldComplete("high-value");
+    }
+
+    @Test
+    public void shouldCompensateHighValuePayment() {
+        shouldCompensateRejectedClearing("high-value");
+    }
+
+    private void shouldComplete(String profile) {
+        var source = randomId();
+        var destination = randomId();
+        createAccount(source, 100);
+        createAccount(destination, 100);
+        var txId = randomId();
+
+        start(txId, source, destination, profile);
+
+        await()
+            .atMost(10, TimeUnit.of(SECONDS))
+            .ignoreExceptions()
+            .untilAsserted(() -> assertThat(getTransaction(txId).status()).isEqualTo(TRANSACTION_COMPLETED));
+
+        var state = getTransaction(txId);
+        assertThat(state.profile()).isEqualTo(profile);
+        assertThat(state.history().steps()).extracting(StepEntry::step)
+            .containsExactlyElementsOf(PaymentProfiles.get(profile).steps());
+        assertThat(getAccountBalance(source)).isEqualTo(90);
+        assertThat(getAccountBalance(destination)).isEqualTo(110);
+    }
+
+    private void shouldCompensateRejectedClearing(String profile) {
+        assertThat(Striping.shards(INCOMPLETE_ACCOUNT)).as("shards of " + INCOMPLETE_ACCOUNT).isGreaterThan(1);
+        createPrimaryShardOnly();
+        var source = randomId();
+        createAccount(source, 100);
+        var txId = randomId();
+        while (Striping.shardFor(INCOMPLETE_ACCOUNT, txId).equals(Striping.primary(INCOMPLETE_ACCOUNT))) txId = randomId();
+
+        start(txId, source, INCOMPLETE_ACCOUNT, profile);
+
+        var id = txId;
+        await()
+            .atMost(10, TimeUnit.of(SECONDS))
+            .ignoreExceptions()
+            .untilAsserted(() -> assertThat(getTransaction(id).status()).isEqualTo(COMPENSATION_COMPLETED));
+
+        assertThat(getAccountBalance(source)).isEqualTo(100);
+        assertThat(execute(componentClient
+            .forEventSourcedEntity(source)
+            .call(Account::verifyFunds)
+            .params(100))).isTrue();
+    }
+
+    private void start(String txId, String source, String destination, String profile) {
+        Transaction.Response response = execute(componentClient
+            .forWorkflow(txId)
+            .call(TransactionWorkflow::processWithProfile)
+            .params(source, destination, 10, profile));
+
+        assertThat(response).isInstanceOf(Transaction.Response.Received.class);
+    }
+
+    private void createPrimaryShardOnly() {
+        var primary = Striping.primary(INCOMPLETE_ACCOUNT);
+        try {
+            execute(componentClient
+                .forEventSourcedEntity(primary)
+                .call(Account::create)
+                .params(primary, 0));
+        } catch (RuntimeException alreadyCreated) {
+            //created by the test of another profile
+        }
+    }
+
+    private String randomId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private void createAccount(String accountId, int amount) {
+        String response = execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::create)
+            .params(accountId, amount));
+
+        assertThat(response).contains("ok");
+    }
+
+    private int getAccountBalance(String accountId) {
+        return execute(componentClient
+            .forEventSourcedEntity(accountId)
+            .call(Account::get));
+    }
+
+    private State getTransaction(String txId) {
+        return execute(componentClient
+            .forWorkflow(txId)
+            .call(TransactionWorkflow::getTransaction));
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.transaction;
+
+import com.example.BlockingWatchdogExtension;
+import com.example.Main;
+import com.example.account.Account;
+import com.example.transaction.TransactionWorkflow.State;
+import com.example.transaction.TransactionWorkflow.State.StepEntry;
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.spring.testkit.KalixIntegrationTestKitSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Load harness: submits concurrent transfers and reports sustained transactions per second
+ * and latency percentiles, end to end (submit to terminal status) and per workflow step.
+ * Step latencies come from the step history recorded by the workflow itself.
+ *
+ * Run it on both sides of a change to compare, for example:
+ *   mvn verify -Pit -Dit.test=TransactionLoadIntegrationTest -Dload.transfers=2000 -Dload.skew=1.1
+ *
+ * - load.transfers    number of transfers to submit (default 200)
+ * - load.accounts     number of accounts transfers are spread over, at least 2 (default 20)
+ * - load.skew         Zipf exponent for picking accounts, 0 is uniform (default 0)
+ * - load.concurrency  maximum submissions in flight (default 64)
+ *
+ * It replaces TransferThroughputIntegrationTest: the burst that test ran is
+ * -Dload.transfers=100 -Dload.accounts=10 -Dload.concurrency=100.
+ */
+@SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
+public class TransactionLoadIntegrationTest extends KalixIntegrationTestKitSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLoadIntegrationTest.class);
+
+    private final int transfers = Integer.getInteger("load.transfers", 200);
+    private final int accounts = Integer.getInteger("load.accounts", 20);
+    private final double skew = Double.parseDouble(System.getProperty("load.skew", "0"));
+    private final int concurrency = Integer.getInteger("load.concurrency", 64);
+
+    @Test
+    public void shouldSustainConcurrentTransfers() throws InterruptedException {
+        assertThat(accounts).as("load.accounts, transfers need distinct source and destination").isGreaterThanOrEqualTo(2);
+
+        var accountIds = new ArrayList<String>();
+        for (int i = 0; i < accounts; i++) {
+            var accountId = randomId();
+            execute(componentClient
+                .forEventSourcedEntity(accountId)
+                .call(Account::create)
+                .params(accountId, transfers * 10));
+            accountIds.add(accountId);
+        }
+
+        var keys = new Zipf(accounts, skew, new Random(42));
+        var submittedAt = new ConcurrentHashMap<String, Long>();
+        var inFlight = new Semaphore(concurrency);
+        var shed = new LongAdder();
+        var start = System.nanoTime();
+
+        for (int i = 0; i < transfers; i++) {
+            var txId = randomId();
+            var from = keys.next();
+            var to = keys.next();
+            while (to == from) to = keys.next();
+
+            inFlight.acquire();
+            submittedAt.put(txId, System.currentTimeMillis());
+            componentClient
+                .forWorkflow(txId)
+                .call(TransactionWorkflow::process)
+                .params(accountIds.get(from), accountIds.get(to), 1)
+                .execute()
+                .whenComplete((response, error) -> {
+                    if (error != null) { //not started, shed by admission control
+                        submittedAt.remove(txId);
+                        shed.increment();
+                    }
+                    inFlight.release();
+                });
+        }
+        var submitNanos = System.nanoTime() - start;
+        inFlight.acquire(concurrency); //every submission answered
+
+        var finished = new ConcurrentHashMap<String, State>();
+        await()
+            .atMost(10, TimeUnit.MINUTES)
+            .pollInterval(200, TimeUnit.MILLISECONDS)
+            .ignoreExceptions()
+            .untilAsserted(() -> {
+                collectTerminal(submittedAt.keySet(), finished);
+                assertThat(finished).hasSize(submittedAt.size());
+            });
+
+        report(submitNanos, submittedAt, finished.values(), shed.sum());
+    }
+
+    private void collectTerminal(Set<String> txIds, Map<String, State> finished) {
+        var pending = txIds.stream()
+            .filter(txId -> !finished.containsKey(txId))
+            .map(txId -> componentClient
+                .forWorkflow(txId)
+                .call(TransactionWorkflow::getTransaction)
+                .execute()
+                .toCompletableFuture())
+            .toList();
+        for (var state : pending) {
+            var current = state.join();
+            if (current.status().isTerminal()) finished.put(current.txId(), current);
+        }
+    }
+
+    private void report(long submitNanos, Map<String, Long> submittedAt, Collection<State> finished, long shed) {
+        var endToEnd = new long[finished.size()];
+        var perStep = new EnumMap<StepId, List<Long>>(StepId.class);
+        var statuses = new EnumMap<State.Status, Integer>(State.Status.class);
+        var firstSubmit = Long.MAX_VALUE;
+        var lastEnd = 0L;
+
+        var i = 0;
+        for (var state : finished) {
+            var submitted = submittedAt.get(state.txId());
+            endToEnd[i++] = state.ended() - submitted;
+            firstSubmit = Math.min(firstSubmit, submitted);
+            lastEnd = Math.max(lastEnd, state.ended());
+            statuses.merge(state.status(), 1, Integer::sum);
+
+            var previous = 0;
+            for (StepEntry entry : state.history().steps()) {
+                perStep.computeIfAbsent(entry.step(), __ -> new ArrayList<>()).add((long) (entry.at() - previous));
+                previous = entry.at();
+            }
+        }
+
+        var elapsedMillis = Math.max(1, lastEnd - firstSubmit);
+        log.info("{} transfers, {} accounts, skew {}, concurrency {}: submitted in {} ms, {} shed, {} tx/s sustained, outcomes {}",
+            transfers, accounts, skew, concurrency,
+            TimeUnit.NANOSECONDS.toMillis(submitNanos),
+            shed,
+            "%.1f".formatted(finished.size() * 1000.0 / elapsedMillis),
+            statuses);
+        log.info(percentiles("end-to-end", endToEnd));
+        perStep.forEach((step, latencies) ->
+            log.info(percentiles(step.name(), latencies.stream().mapToLong(Long::longValue).toArray())));
+    }
+
+    private static String percentiles(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        return "%-22s n=%-6d p50=%d ms p99=%d ms p999=%d ms max=%d ms".formatted(
+            name,
+            latencies.length,
+            percentile(latencies, 0.50),
+            percentile(latencies, 0.99),
+            percentile(latencies, 0.999),
+            latencies[latencies.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        var index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Picks account indexes with a Zipf distribution, so a few accounts take most transfers.
+     */
+    private static final class Zipf {
+
+        private final double[] cumulative;
+        private final Random random;
+
+        Zipf(int size, double exponent, Random random) {
+            this.cumulative = new double[size];
+            this.random = random;
+            var sum = 0.0;
+            for (int k = 0; k < size; k++) {
+                sum += 1.0 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < size; k++) cumulative[k] /= sum;
+        }
+
+        int next() {
+            var index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+
+    }
+
+    private String randomId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private <T> T execute(DeferredCall<Any, T> deferredCall) {
+        try {
+            return deferredCall.execute().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.transaction;
 
+import com.example.BlockingWatchdogExtension;
 import com.example.Main;
 import com.example.transaction.TransactionWorkflow.State;
 import com.example.account.Account;
@@ -8,7 +9,12 @@ import kalix.javasdk.DeferredCall;
 import kalix.spring.testkit.KalixIntegrationTestKitSupport;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 
 import java.time.Duration;
 import java.util.UUID;
@@ -22,8 +28,12 @@ import static org.awaitility.Awaitility.await;
 import static com.example.transaction.TransactionWorkflow.State.Status.*;
 
 @SpringBootTest(classes = Main.class)
+@ExtendWith(BlockingWatchdogExtension.class)
 public class TransactionWorkflowIntegrationTest extends KalixIntegrationTestKitSupport {
 
+    @Autowired
+    private WebClient webClient;
+
     private Duration timeout = Duration.of(10, SECONDS);
 
     @Test
@@ -62,6 +72,60 @@ public class TransactionWorkflowIntegrationTest extends KalixIntegrationTestKitS
             });
     }
 
+    /**
+     * The stream is opened before the transaction starts, over HTTP as clients use it, and
+     * completes by itself after the terminal status.
+     */
+    @Test
+    public void shouldStreamStatusUntilCompleted() throws Exception {
+        var accountId1 = randomId();
+        var accountId2 = randomId();
+
+        createAccount(accountId1, 100);
+        createAccount(accountId2, 100);
+
+        var txId = randomId();
+        var statuses = statusStream(txId)
+            .map(Transaction.Tracking.StatusUpdate::status)
+            .collectList()
+            .toFuture();
+
+        execute(componentClient
+            .forWorkflow(txId)
+            .call(TransactionWorkflow::process)
+            .params(accountId1, accountId2, 10));
+
+        assertThat(statuses.get(timeout.toMillis(), TimeUnit.MILLISECONDS))
+            .doesNotHaveDuplicates()
+            .isSubsetOf(VALIDATING_REQUEST.name(), VERIFYING_LIQUIDITY.name(), CLEARING_TRANSACTION.name(), TRANSACTION_COMPLETED.name())
+            .endsWith(TRANSACTION_COMPLETED.name());
+    }
+
+    @Test
+    public void shouldStreamTerminalStatusOfCompletedTransaction() throws Exception {
+        var accountId1 = randomId();
+        var accountId2 = randomId();
+
+        createAccount(accountId1, 100);
+        createAccount(accountId2, 100);
+
+        var txId = randomId();
+        execute(componentClient
+            .forWorkflow(txId)
+            .call(TransactionWorkflow::process)
+            .params(accountId1, accountId2, 10));
+        await()
+            .atMost(10, TimeUnit.of(SECONDS))
+            .ignoreExceptions()
+            .untilAsserted(() -> assertThat(getTransaction(txId).status()).isEqualTo(TRANSACTION_COMPLETED));
+
+        var updates = statusStream(txId).collectList().toFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0).status()).isEqualTo(TRANSACTION_COMPLETED.name());
+        assertThat(updates.get(0).terminal()).isTrue();
+    }
+
     @Test
     public void shouldFailValidationCheck_MissingAccounts() {
         var accountId1 = randomId();
@@ -115,6 +179,14 @@ public class TransactionWorkflowIntegrationTest extends KalixIntegrationTestKitS
             .call(Account::get));
     }
 
+    private Flux<Transaction.Tracking.StatusUpdate> statusStream(String txId) {
+        return webClient.get()
+            .uri("/transaction-status/{txId}", txId)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .retrieve()
+            .bodyToFlux(Transaction.Tracking.StatusUpdate.class);
+    }
+
     private State getTransaction(String txId) {
         return execute(componentClient
             .forWorkflow(txId)
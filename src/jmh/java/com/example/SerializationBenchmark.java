@@ -0,0 +1,116 @@
+package com.example;
+
+import com.example.account.Account;
+import com.example.codec.CompactCodec;
+import com.example.mock.Posting;
+import com.example.mock.Validation.ValidationResult;
+import com.example.transaction.TransactionWorkflow;
+import com.example.transaction.TransactionWorkflow.State;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kalix.javasdk.JsonSupport;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.transaction.TransactionWorkflow.State.Outcome.APPROVED;
+import static com.example.transaction.TransactionWorkflow.State.Status.*;
+import static com.example.transaction.TransactionWorkflow.State.StepId.*;
+
+/**
+ * Round-trips of what the runtime persists or passes between components on every payment,
+ * as JSON with the same ObjectMapper as the SDK, or with the {@link CompactCodec}. The
+ * encoded size of each payload is logged once per trial. Step results are decoded as
+ * their sealed result type, as the workflow reads them. Transaction and account ids are
+ * random UUIDs, as the service is given in practice, so the ids take their real share of
+ * the encoded size. A trial fails when a payload does not decode back to an equal value.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(SerializationBenchmark.class);
+
+    @Param({"state", "account-created", "funds-withdrawn", "funds-deposited-batch", "validation-result", "post-result"})
+    public String payload;
+
+    @Param({"json", "compact"})
+    public String format;
+
+    private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+
+    private Object value;
+    private Class<?> type;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws Exception {
+        var txId = uuid();
+        var from = uuid();
+        var to = uuid();
+        switch (payload) {
+            case "state" -> {
+                value = State.from(txId, new TransactionWorkflow.Payment(from, to, "na", 10))
+                    .transition(SCREENING, APPROVED, VERIFYING_LIQUIDITY)
+                    .transition(RESERVE_FUNDS, APPROVED, CLEARING_TRANSACTION)
+                    .transition(TRANSACTION_CLEARING, APPROVED, TRANSACTION_COMPLETED);
+                type = State.class;
+            }
+            case "account-created" -> {
+                value = new Account.Event.AccountCreated(from, 100);
+                type = Account.Event.AccountCreated.class;
+            }
+            case "funds-withdrawn" -> {
+                value = new Account.Event.FundsWithdrawn(90, 100, txId);
+                type = Account.Event.FundsWithdrawn.class;
+            }
+            case "funds-deposited-batch" -> {
+                value = new Account.Event.FundsDepositedBatch(130, 100, List.of(
+                    new Account.Credit(txId, 10), new Account.Credit(uuid(), 20)
+                ));
+                type = Account.Event.FundsDepositedBatch.class;
+            }
+            case "validation-result" -> {
+                value = new ValidationResult.Rejected("Source Account Not Found");
+                type = ValidationResult.class;
+            }
+            case "post-result" -> {
+                value = new Posting.PostResult.Approved();
+                type = Posting.PostResult.class;
+            }
+            default -> throw new IllegalArgumentException(payload);
+        }
+        encoded = encode();
+        if (!value.equals(decode(encoded)))
+            throw new IllegalStateException(payload + " " + format + " does not round-trip: " + decode(encoded));
+        log.info("{} {}: {} bytes", payload, format, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return format.equals("compact") ? CompactCodec.encode(value) : mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return decode(encoded);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return decode(encode());
+    }
+
+    private static String uuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    private Object decode(byte[] bytes) throws Exception {
+        return format.equals("compact") ? CompactCodec.decode(bytes, type) : mapper.readValue(bytes, type);
+    }
+
+}
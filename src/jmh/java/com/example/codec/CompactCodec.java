@@ -0,0 +1,279 @@
+package com.example.codec;
+
+import com.example.account.Account;
+import com.example.account.Account.Event.*;
+import com.example.mock.Clearing.ClearingResult;
+import com.example.mock.Liquidity.LiquidityResult;
+import com.example.mock.Posting.PostResult;
+import com.example.mock.Sanction.SanctionResult;
+import com.example.mock.Validation.ValidationResult;
+import com.example.transaction.TransactionWorkflow.State;
+import com.example.transaction.TransactionWorkflow.State.Outcome;
+import com.example.transaction.TransactionWorkflow.State.Status;
+import com.example.transaction.TransactionWorkflow.State.StepEntry;
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.example.transaction.TransactionWorkflow.State.StepStack;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kalix.javasdk.JsonSupport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the Account events, the transaction workflow state and the
+ * step result types.
+ *
+ * An encoded value starts with a marker byte that never starts JSON text and a format
+ * version, followed by the value as a frame: a type tag, the body length and the fields in
+ * declaration order. Integers are varints, strings are length prefixed UTF-8, enums are
+ * codes from fixed tables, nested records are frames themselves.
+ *
+ * Schema evolution follows two rules: fields are only ever appended to a type, and tags and
+ * enum codes are never reused. A reader skips fields appended after it was written, and
+ * reads fields missing from older data as null, zero or empty.
+ *
+ * Decoding anything without the marker falls back to Jackson with the SDK object mapper, so
+ * data written as JSON stays readable while it is migrated.
+ *
+ * The SDK persists and exchanges JSON and takes no other serializer, so the service does not
+ * use this encoding. It lives with the benchmarks to measure what a binary encoding would
+ * save, see SerializationBenchmark, and is only kept in step with the types it benchmarks.
+ */
+public final class CompactCodec {
+
+    static final byte MARKER = (byte) 0xC1; // not valid as the first byte of UTF-8 text
+    static final byte VERSION = 1;
+
+    private static final ObjectMapper json = JsonSupport.getObjectMapper();
+
+    //tags of the encoded types, never reused, ABSENT stands in for a null nested value
+    private static final int ABSENT = 0;
+    private static final int ACCOUNT_CREATED = 1;
+    private static final int FUNDS_DEPOSITED = 2;
+    private static final int FUNDS_WITHDRAWN = 3;
+    private static final int HOLD_PLACED = 4;
+    private static final int HOLD_CAPTURED = 5;
+    private static final int HOLD_RELEASED = 6;
+    private static final int FUNDS_DEPOSITED_BATCH = 7;
+    private static final int CREDIT = 8;
+    private static final int FUNDS_REFUNDED = 9;
+    private static final int WORKFLOW_STATE = 16;
+    private static final int TRANSACTION = 17;
+    private static final int STEP_ENTRY = 18;
+    private static final int VALIDATION_APPROVED = 32;
+    private static final int VALIDATION_REJECTED = 33;
+    private static final int SANCTION_APPROVED = 34;
+    private static final int SANCTION_REJECTED = 35;
+    private static final int LIQUIDITY_APPROVED = 36;
+    private static final int LIQUIDITY_REJECTED = 37;
+    private static final int POST_APPROVED = 38;
+    private static final int POST_REJECTED = 39;
+    private static final int CLEARING_ACCEPTED = 40;
+    private static final int CLEARING_REJECTED = 41;
+
+    //enum codes are positions in these tables, new constants are only ever appended
+    private static final EnumCodes<StepId> STEP_IDS = new EnumCodes<>(
+        StepId.SCREENING, StepId.VALIDATE_TRANSACTION, StepId.SANCTION_CHECK, StepId.RESERVE_FUNDS,
+        StepId.LIQUIDITY_CHECK, StepId.POSTING_TRANSACTION, StepId.TRANSACTION_CLEARING,
+        StepId.COMPENSATE, StepId.FAILOVER_HANDLER, StepId.RECONCILE
+    );
+    private static final EnumCodes<Outcome> OUTCOMES = new EnumCodes<>(
+        Outcome.APPROVED, Outcome.REJECTED, Outcome.FAILED
+    );
+    private static final EnumCodes<Status> STATUSES = new EnumCodes<>(
+        Status.VALIDATING_REQUEST, Status.VALIDATION_FAILED, Status.VERIFYING_LIQUIDITY,
+        Status.LIQUIDITY_FAILED, Status.POSTING_TRANSACTION, Status.POSTING_FAILED,
+        Status.CLEARING_TRANSACTION, Status.CLEARING_FAILED, Status.CHECKING_SANCTIONS,
+        Status.SANCTIONS_FAILED, Status.TRANSACTION_COMPLETED, Status.TRANSACTION_FAILED,
+        Status.COMPENSATION_COMPLETED, Status.CLEARING_UNRESOLVED
+    );
+
+    private CompactCodec() {}
+
+    public static byte[] encode(Object value) {
+        var out = new Output(64);
+        out.write(MARKER);
+        out.write(VERSION);
+        write(out, value);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a compact value, or JSON written before the compact encoding was used.
+     */
+    public static <T> T decode(byte[] bytes, Class<T> type) {
+        if (bytes.length == 0 || bytes[0] != MARKER) {
+            try {
+                return json.readValue(bytes, type);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Neither compact nor JSON " + type.getSimpleName(), e);
+            }
+        }
+        if (bytes.length < 2 || bytes[1] > VERSION)
+            throw new IllegalArgumentException("Unsupported compact format version");
+        return type.cast(read(new Input(bytes, 2)));
+    }
+
+    private static void write(Output out, Object value) {
+        switch (value) {
+            case AccountCreated event -> out.frame(ACCOUNT_CREATED, () -> {
+                out.string(event.id());
+                out.signed(event.initBalance());
+            });
+            case FundsDeposited event -> out.frame(FUNDS_DEPOSITED, () -> {
+                out.signed(event.newBalance());
+                out.signed(event.prevBalance());
+                out.string(event.txId());
+            });
+            case FundsWithdrawn event -> out.frame(FUNDS_WITHDRAWN, () -> {
+                out.signed(event.newBalance());
+                out.signed(event.prevBalance());
+                out.string(event.txId());
+            });
+            case HoldPlaced event -> out.frame(HOLD_PLACED, () -> {
+                out.string(event.holdId());
+                out.signed(event.amount());
+                out.unsigned(event.placedAt());
+                out.unsigned(event.expiresAt() - event.placedAt());
+            });
+            case HoldCaptured event -> out.frame(HOLD_CAPTURED, () -> {
+                out.string(event.holdId());
+                out.signed(event.newBalance());
+                out.signed(event.prevBalance());
+            });
+            case HoldReleased event -> out.frame(HOLD_RELEASED, () -> out.string(event.holdId()));
+            case FundsDepositedBatch event -> out.frame(FUNDS_DEPOSITED_BATCH, () -> {
+                out.signed(event.newBalance());
+                out.signed(event.prevBalance());
+                out.unsigned(event.credits().size());
+                for (Account.Credit credit : event.credits()) write(out, credit);
+            });
+            case FundsRefunded event -> out.frame(FUNDS_REFUNDED, () -> {
+                out.signed(event.newBalance());
+                out.signed(event.prevBalance());
+                out.string(event.txId());
+            });
+            case Account.Credit credit -> out.frame(CREDIT, () -> {
+                out.string(credit.txId());
+                out.signed(credit.amount());
+            });
+            case State state -> out.frame(WORKFLOW_STATE, () -> {
+                out.string(state.txId());
+                if (state.transaction() == null) out.unsigned(ABSENT);
+                else write(out, state.transaction());
+                out.unsigned(STATUSES.code(state.status()));
+                out.nullable(state.started());
+                var steps = state.history().steps();
+                out.unsigned(steps.size());
+                for (StepEntry step : steps) write(out, step);
+                out.string(state.profile());
+            });
+            case State.Transaction transaction -> out.frame(TRANSACTION, () -> {
+                out.string(transaction.from());
+                out.string(transaction.to());
+                out.signed(transaction.amount());
+            });
+            case StepEntry step -> out.frame(STEP_ENTRY, () -> {
+                out.unsigned(STEP_IDS.code(step.step()));
+                out.unsigned(OUTCOMES.code(step.outcome()));
+                out.signed(step.at());
+            });
+            case ValidationResult.Approved __ -> out.frame(VALIDATION_APPROVED, () -> {});
+            case ValidationResult.Rejected rejected -> out.frame(VALIDATION_REJECTED, () -> out.string(rejected.reason()));
+            case SanctionResult.Approved __ -> out.frame(SANCTION_APPROVED, () -> {});
+            case SanctionResult.Rejected rejected -> out.frame(SANCTION_REJECTED, () -> out.string(rejected.reason()));
+            case LiquidityResult.Approved __ -> out.frame(LIQUIDITY_APPROVED, () -> {});
+            case LiquidityResult.Rejected rejected -> out.frame(LIQUIDITY_REJECTED, () -> out.string(rejected.reason()));
+            case PostResult.Approved __ -> out.frame(POST_APPROVED, () -> {});
+            case PostResult.Rejected rejected -> out.frame(POST_REJECTED, () -> out.string(rejected.reason()));
+            case ClearingResult.Accepted __ -> out.frame(CLEARING_ACCEPTED, () -> {});
+            case ClearingResult.Rejected rejected -> out.frame(CLEARING_REJECTED, () -> out.string(rejected.reason()));
+            default -> throw new IllegalArgumentException("No compact encoding for " + value.getClass().getName());
+        }
+    }
+
+    private static Object read(Input in) {
+        var tag = (int) in.unsigned();
+        var end = in.frameEnd();
+        var value = switch (tag) {
+            case ACCOUNT_CREATED -> new AccountCreated(in.string(end), in.signed(end));
+            case FUNDS_DEPOSITED -> new FundsDeposited(in.signed(end), in.signed(end), in.string(end));
+            case FUNDS_WITHDRAWN -> new FundsWithdrawn(in.signed(end), in.signed(end), in.string(end));
+            case HOLD_PLACED -> {
+                var holdId = in.string(end);
+                var amount = in.signed(end);
+                var placedAt = in.unsigned(end);
+                yield new HoldPlaced(holdId, amount, placedAt, placedAt + in.unsigned(end));
+            }
+            case HOLD_CAPTURED -> new HoldCaptured(in.string(end), in.signed(end), in.signed(end));
+            case HOLD_RELEASED -> new HoldReleased(in.string(end));
+            case FUNDS_DEPOSITED_BATCH -> {
+                var newBalance = in.signed(end);
+                var prevBalance = in.signed(end);
+                var credits = new ArrayList<Account.Credit>();
+                for (long i = in.unsigned(end); i > 0; i--) credits.add((Account.Credit) read(in));
+                yield new FundsDepositedBatch(newBalance, prevBalance, credits);
+            }
+            case CREDIT -> new Account.Credit(in.string(end), in.signed(end));
+            case FUNDS_REFUNDED -> new FundsRefunded(in.signed(end), in.signed(end), in.string(end));
+            case WORKFLOW_STATE -> {
+                var txId = in.string(end);
+                var transaction = in.absent(end) ? null : (State.Transaction) read(in);
+                var status = STATUSES.of((int) in.unsigned(end));
+                var started = in.nullable(end);
+                var steps = new StepEntry[(int) in.unsigned(end)];
+                for (int i = 0; i < steps.length; i++) steps[i] = (StepEntry) read(in);
+                var history = new StepStack(List.of(steps));
+                yield new State(txId, transaction, status, started, history, in.string(end));
+            }
+            case TRANSACTION -> new State.Transaction(in.string(end), in.string(end), in.signed(end));
+            case STEP_ENTRY -> new StepEntry(
+                STEP_IDS.of((int) in.unsigned(end)),
+                OUTCOMES.of((int) in.unsigned(end)),
+                in.signed(end)
+            );
+            case VALIDATION_APPROVED -> new ValidationResult.Approved();
+            case VALIDATION_REJECTED -> new ValidationResult.Rejected(in.string(end));
+            case SANCTION_APPROVED -> new SanctionResult.Approved();
+            case SANCTION_REJECTED -> new SanctionResult.Rejected(in.string(end));
+            case LIQUIDITY_APPROVED -> new LiquidityResult.Approved();
+            case LIQUIDITY_REJECTED -> new LiquidityResult.Rejected(in.string(end));
+            case POST_APPROVED -> new PostResult.Approved();
+            case POST_REJECTED -> new PostResult.Rejected(in.string(end));
+            case CLEARING_ACCEPTED -> new ClearingResult.Accepted();
+            case CLEARING_REJECTED -> new ClearingResult.Rejected(in.string(end));
+            default -> throw new IllegalArgumentException("Unknown compact type tag " + tag);
+        };
+        in.position = end; //skips fields appended by newer writers
+        return value;
+    }
+
+    private static final class EnumCodes<E extends Enum<E>> {
+
+        private final E[] constants;
+        private final int[] codes;
+
+        @SafeVarargs
+        EnumCodes(E... constants) {
+            this.constants = constants;
+            this.codes = new int[constants[0].getDeclaringClass().getEnumConstants().length];
+            Arrays.fill(codes, -1);
+            for (int code = 0; code < constants.length; code++) codes[constants[code].ordinal()] = code;
+        }
+
+        int code(E constant) {
+            var code = codes[constant.ordinal()];
+            if (code < 0) throw new IllegalArgumentException("No compact code for " + constant);
+            return code;
+        }
+
+        E of(int code) {
+            if (code >= constants.length) throw new IllegalArgumentException("Unknown compact code " + code);
+            return constants[code];
+        }
+
+    }
+
+}
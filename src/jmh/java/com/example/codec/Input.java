@@ -0,0 +1,75 @@
+package com.example.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the compact encoding. Reads bounded by the end of a frame return null, zero or an
+ * empty count once the frame is exhausted, which is how fields missing from data written by
+ * an older version are read.
+ */
+final class Input {
+
+    private final byte[] buffer;
+    int position;
+
+    Input(byte[] buffer, int position) {
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    /**
+     * Reads the length of the frame that starts here.
+     *
+     * @return the position after the frame
+     */
+    int frameEnd() {
+        var length = (int) unsigned();
+        var end = position + length;
+        if (end > buffer.length) throw new IllegalArgumentException("Truncated compact frame");
+        return end;
+    }
+
+    /**
+     * @return true, having skipped it, when the next nested value is absent
+     */
+    boolean absent(int end) {
+        if (position >= end) return true;
+        if (buffer[position] != 0) return false;
+        position++;
+        return true;
+    }
+
+    long unsigned() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= buffer.length) throw new IllegalArgumentException("Truncated compact varint");
+            var b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed compact varint");
+    }
+
+    long unsigned(int end) {
+        return position < end ? unsigned() : 0;
+    }
+
+    int signed(int end) {
+        var value = (int) unsigned(end);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    Long nullable(int end) {
+        var value = unsigned(end);
+        return value == 0 ? null : value - 1;
+    }
+
+    String string(int end) {
+        var length = (int) unsigned(end);
+        if (length == 0) return null;
+        var value = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+        position += length - 1;
+        return value;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.example.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable buffer the compact encoding is written to.
+ */
+final class Output {
+
+    private byte[] buffer;
+    private int position;
+
+    Output(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    void write(byte b) {
+        ensure(1);
+        buffer[position++] = b;
+    }
+
+    void unsigned(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void signed(int value) {
+        unsigned(Integer.toUnsignedLong((value << 1) ^ (value >> 31)));
+    }
+
+    /**
+     * Writes null as 0 and any other non-negative value shifted by one.
+     */
+    void nullable(Long value) {
+        unsigned(value == null ? 0 : value + 1);
+    }
+
+    /**
+     * Writes null as 0 and any other string as its UTF-8 length plus one, then the bytes.
+     */
+    void string(String value) {
+        if (value == null) {
+            unsigned(0);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        unsigned(bytes.length + 1L);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes the tag and the length of the body ahead of the body. One byte is reserved for
+     * the length, bodies of 128 bytes or more are moved to make room for the longer varint.
+     */
+    void frame(int tag, Runnable body) {
+        unsigned(tag);
+        write((byte) 0);
+        var start = position;
+        body.run();
+        var length = position - start;
+        if (length < 0x80) {
+            buffer[start - 1] = (byte) length;
+            return;
+        }
+        var extra = varintSize(length) - 1;
+        ensure(extra);
+        System.arraycopy(buffer, start, buffer, start + extra, length);
+        position = start - 1;
+        unsigned(length);
+        position += length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static int varintSize(int value) {
+        var size = 1;
+        while ((value >>>= 7) != 0) size++;
+        return size;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.sanctions;
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Screening lookups against a synthetic list of millions of entries. Misses are the common
+ * case in production and are answered by the Bloom filter; hits also go through the binary
+ * search. The heap and off-heap footprint of the index is logged once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScreeningIndexBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ScreeningIndexBenchmark.class);
+
+    @Param({"1000000", "5000000"})
+    public int entries;
+
+    private ScreeningIndex index;
+    private String[] listed;
+    private String[] unlisted;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var runtime = Runtime.getRuntime();
+        System.gc();
+        var heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        var hashes = new long[entries];
+        for (int i = 0; i < entries; i++) hashes[i] = ScreeningIndex.hash("Sanctioned Entity " + i);
+        index = ScreeningIndex.of(hashes, "synthetic-" + entries);
+        hashes = null;
+
+        System.gc();
+        var heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        log.info("{} entries: {} bytes off-heap, heap grew by ~{} bytes",
+            entries, index.offHeapBytes(), heapAfter - heapBefore);
+
+        listed = new String[1024];
+        unlisted = new String[1024];
+        for (int i = 0; i < listed.length; i++) {
+            listed[i] = "SANCTIONED-ENTITY-" + (i * 977 % entries);
+            unlisted[i] = "acct-" + i + "-clean";
+        }
+    }
+
+    @Benchmark
+    public boolean miss() {
+        return index.contains(unlisted[next++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean hit() {
+        return index.contains(listed[next++ & 1023]);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.example.transaction;
+
+import com.example.mock.Validation.Validate;
+import com.example.transaction.TransactionWorkflow.State;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.transaction.TransactionWorkflow.State.Outcome.APPROVED;
+import static com.example.transaction.TransactionWorkflow.State.Status.*;
+import static com.example.transaction.TransactionWorkflow.State.StepId.*;
+
+/**
+ * Logging cost paid by an unsampled payment on the happy path, three step attempts and three
+ * transitions, against building the messages the workflow used to concatenate for every step.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionTraceBenchmark {
+
+    private String txId;
+    private Validate.Transaction command;
+    private State screened;
+    private State reserved;
+    private State cleared;
+
+    @Setup
+    public void setup() {
+        var i = 0;
+        while (TransactionTrace.sampled("tx-" + i)) i++;
+        txId = "tx-" + i;
+
+        command = new Validate.Transaction(txId, "a", "b", 10);
+        screened = State.from(txId, new TransactionWorkflow.Payment("a", "b", "na", 10))
+            .transition(SCREENING, APPROVED, VERIFYING_LIQUIDITY);
+        reserved = screened.transition(RESERVE_FUNDS, APPROVED, CLEARING_TRANSACTION);
+        cleared = reserved.transition(TRANSACTION_CLEARING, APPROVED, TRANSACTION_COMPLETED);
+    }
+
+    @Benchmark
+    public void unsampledPayment() {
+        TransactionTrace.attempt(SCREENING, txId);
+        TransactionTrace.transition(screened, null);
+        TransactionTrace.attempt(RESERVE_FUNDS, txId);
+        TransactionTrace.transition(reserved, null);
+        TransactionTrace.attempt(TRANSACTION_CLEARING, txId);
+        TransactionTrace.transition(cleared, null);
+    }
+
+    @Benchmark
+    public void concatenatedMessages(Blackhole blackhole) {
+        blackhole.consume("Screening Payment Request: " + command);
+        blackhole.consume("Screening Approved: " + txId);
+        blackhole.consume("Reserving Funds: " + command);
+        blackhole.consume("Clearing Transaction: " + command);
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.example.transaction;
+
+import com.example.transaction.TransactionWorkflow.State;
+import com.example.transaction.TransactionWorkflow.State.StepEntry;
+import com.example.transaction.TransactionWorkflow.State.StepStack;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kalix.javasdk.JsonSupport;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.example.transaction.TransactionWorkflow.State.Outcome.APPROVED;
+import static com.example.transaction.TransactionWorkflow.State.Status.*;
+import static com.example.transaction.TransactionWorkflow.State.StepId.*;
+
+/**
+ * State copies made by the workflow on every step transition, over a full happy path,
+ * and history appends at growing history sizes.
+ *
+ * The persisted benchmarks also serialize the state with the SDK object mapper at each of
+ * the four points the runtime persists it on the happy path, with UUID transaction and
+ * account ids, for the current state and for a copy of the state as it was before the
+ * compact history. Run them with {@code -prof gc}: gc.alloc.rate.norm is the allocation
+ * per payment. The bytes persisted per payment are logged once per trial.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WorkflowStateBenchmark {
+
+    private static final StepEntry ENTRY = new StepEntry(SCREENING, APPROVED, 1);
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowStateBenchmark.class);
+
+    private final TransactionWorkflow.Payment payment = new TransactionWorkflow.Payment("a", "b", "na", 10);
+
+    private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+
+    private final String txId = UUID.randomUUID().toString();
+
+    private final TransactionWorkflow.Payment uuidPayment = new TransactionWorkflow.Payment(
+        UUID.randomUUID().toString(), UUID.randomUUID().toString(), "na", 10
+    );
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class History {
+
+        @Param({"1", "8", "64", "512"})
+        public int historySize;
+
+        private StepStack steps;
+
+        @Setup
+        public void setup() {
+            steps = new StepStack();
+            for (int i = 0; i < historySize; i++) steps = steps.push(ENTRY);
+        }
+
+    }
+
+    @Benchmark
+    public State happyPath() {
+        return State.from("tx-1", payment)
+            .transition(SCREENING, APPROVED, VERIFYING_LIQUIDITY)
+            .transition(RESERVE_FUNDS, APPROVED, CLEARING_TRANSACTION)
+            .transition(TRANSACTION_CLEARING, APPROVED, TRANSACTION_COMPLETED);
+    }
+
+    @Benchmark
+    public StepStack push(History history) {
+        return history.steps.push(ENTRY);
+    }
+
+    @Setup
+    public void logPersistedBytes() throws JsonProcessingException {
+        log.info("bytes persisted per payment: {} compact history, {} before", persisted(), legacyPersisted());
+    }
+
+    @Benchmark
+    public int persisted() throws JsonProcessingException {
+        var state = State.from(txId, uuidPayment).withStatus(VALIDATING_REQUEST);
+        var bytes = mapper.writeValueAsBytes(state).length;
+        state = state.transition(SCREENING, APPROVED, VERIFYING_LIQUIDITY);
+        bytes += mapper.writeValueAsBytes(state).length;
+        state = state.transition(RESERVE_FUNDS, APPROVED, CLEARING_TRANSACTION);
+        bytes += mapper.writeValueAsBytes(state).length;
+        state = state.transition(TRANSACTION_CLEARING, APPROVED, TRANSACTION_COMPLETED);
+        return bytes + mapper.writeValueAsBytes(state).length;
+    }
+
+    @Benchmark
+    public int legacyPersisted() throws JsonProcessingException {
+        var state = LegacyState.from(txId, uuidPayment);
+        var bytes = mapper.writeValueAsBytes(state).length;
+        state = state.logStep("screening", "approved").withStatus(VERIFYING_LIQUIDITY);
+        bytes += mapper.writeValueAsBytes(state).length;
+        state = state.logStep("reserve-funds", "approved").withStatus(CLEARING_TRANSACTION);
+        bytes += mapper.writeValueAsBytes(state).length;
+        state = state.logStep("transaction-clearing", "approved").complete().withStatus(TRANSACTION_COMPLETED);
+        return bytes + mapper.writeValueAsBytes(state).length;
+    }
+
+    /**
+     * The workflow state before the compact history, as it was persisted.
+     */
+    public record LegacyState(
+        String txId,
+        State.Transaction transaction,
+        State.Status status,
+        Long started,
+        Long ended,
+        Long duration,
+        LegacyStack history
+    ) {
+
+        public record LegacyStack(List<LegacyEntry> steps) {}
+
+        public record LegacyEntry(String name, String status, Long finished) {}
+
+        static LegacyState from(String txId, TransactionWorkflow.Payment request) {
+            var transaction = new State.Transaction(request.from(), request.to(), request.amount());
+            return new LegacyState(txId, transaction, VALIDATING_REQUEST, System.currentTimeMillis(), 0L, 0L, new LegacyStack(List.of()));
+        }
+
+        LegacyState withStatus(State.Status newStatus) {
+            return new LegacyState(txId, transaction, newStatus, started, ended, duration, history);
+        }
+
+        LegacyState complete() {
+            var ended = System.currentTimeMillis();
+            return new LegacyState(txId, transaction, status, started, ended, ended - started, history);
+        }
+
+        LegacyState logStep(String stepName, String stepStatus) {
+            var entry = new LegacyEntry(stepName, stepStatus, System.currentTimeMillis());
+            var steps = Stream.concat(history.steps().stream(), Stream.of(entry)).toList();
+            return new LegacyState(txId, transaction, status, started, ended, duration, new LegacyStack(steps));
+        }
+
+    }
+
+}
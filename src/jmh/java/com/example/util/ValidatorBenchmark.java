@@ -0,0 +1,80 @@
+package com.example.util;
+
+import com.example.mock.ValidateTransactionValidator;
+import com.example.mock.Validation.Validate;
+import com.example.util.Validator.Result;
+import com.example.util.Validator.RuleSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.util.Validator.isTrue;
+
+/**
+ * Local validations as run by the action handlers on every payment, through the
+ * per-call {@link Validator.ValidationBuilder}, through a compiled {@link RuleSet} and
+ * through the validator generated for {@link Validate.Transaction}, which reports all
+ * violations whatever the mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+
+    public record Request(String txId, String source, String destination, int amount) {}
+
+    private static final RuleSet<Request> PASSIVE_RULES = rules(Validator.Mode.PASSIVE);
+    private static final RuleSet<Request> FAIL_FAST_RULES = rules(Validator.Mode.FAIL_FAST);
+
+    @Param({"FAIL_FAST", "PASSIVE"})
+    public Validator.Mode mode;
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    private Request request;
+    private Validate.Transaction transaction;
+
+    @Setup
+    public void setup() {
+        request = valid
+            ? new Request("tx-1", "a", "b", 10)
+            : new Request("", "a", "", 0);
+        transaction = new Validate.Transaction(request.txId(), request.source(), request.destination(), request.amount());
+    }
+
+    @Benchmark
+    public Result handle() {
+        return Validator
+            .validate(
+                isTrue(request.txId().isEmpty(), "Transaction ID is Required"),
+                isTrue(request.amount() <= 0, "Transaction amount must be greater than 0"),
+                isTrue(request.source().isEmpty(), "Source Account is Required"),
+                isTrue(request.destination().isEmpty(), "Destination Account is Required")
+            )
+            .mode(mode)
+            .handle((result, err) -> result);
+    }
+
+    @Benchmark
+    public Result compiledRuleSet() {
+        var rules = mode == Validator.Mode.FAIL_FAST ? FAIL_FAST_RULES : PASSIVE_RULES;
+        return rules.check(request, (result, err) -> result);
+    }
+
+    @Benchmark
+    public Result generated() {
+        return ValidateTransactionValidator.validate(transaction).failed() ? Result.ERROR : Result.SUCCESS;
+    }
+
+    private static RuleSet<Request> rules(Validator.Mode mode) {
+        return Validator.<Request>rules()
+            .isEmpty(Request::txId, "TX_ID_REQUIRED", "Transaction ID is Required")
+            .isLtEqZero(Request::amount, "AMOUNT_NOT_POSITIVE", "Transaction amount must be greater than 0")
+            .isEmpty(Request::source, "SOURCE_REQUIRED", "Source Account is Required")
+            .isEmpty(Request::destination, "DESTINATION_REQUIRED", "Destination Account is Required")
+            .mode(mode)
+            .compile();
+    }
+
+}
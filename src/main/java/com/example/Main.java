@@ -1,10 +1,13 @@
 package com.example;
 
+import com.example.sanctions.SanctionsList;
+import com.example.util.BlockingWatchdog;
 import kalix.javasdk.annotations.Acl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 // Allow all other Kalix services deployed in the same project to access the components of this
@@ -18,6 +21,15 @@ public class Main {
 
   public static void main(String[] args) {
     logger.info("Starting Kalix Application");
-    SpringApplication.run(Main.class, args);
+    BlockingWatchdog.startIfEnabled();
+    SanctionsList.load();
+    ConfigurableApplicationContext context = SpringApplication.run(Main.class, args);
+
+    // training run of the fast-start build: exit after one payment, so the JVM dumps the classes
+    // loaded during startup and on the request path into the class-data sharing archive
+    if (Boolean.getBoolean("payment-service.training-run")) {
+      TrainingRun.run();
+      System.exit(SpringApplication.exit(context));
+    }
   }
 }
\ No newline at end of file
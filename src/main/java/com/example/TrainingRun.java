@@ -0,0 +1,103 @@
+package com.example;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Training run of the fast-start build, started with {@code -Dpayment-service.training-run}.
+ *
+ * The class-data sharing archive only holds the classes loaded before the JVM exits, so the
+ * run drives one transfer between two new accounts through the Kalix runtime at
+ * {@code payment-service.training.runtime-url}, loading the classes of the request path too.
+ * Without a reachable runtime the archive covers startup only, which is logged.
+ */
+final class TrainingRun {
+
+    private static final Logger log = LoggerFactory.getLogger(TrainingRun.class);
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.training");
+
+    private static final String RUNTIME_URL = config.getString("runtime-url");
+
+    private static final Duration TIMEOUT = config.getDuration("timeout");
+
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(100);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(RETRY_INTERVAL.multipliedBy(10)).build();
+
+    private final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+
+    private TrainingRun() {}
+
+    /**
+     * @return true when a payment completed, false when only startup was trained
+     */
+    static boolean run() {
+        if (RUNTIME_URL.isEmpty()) {
+            log.warn("No Kalix runtime configured, the class-data sharing archive only covers startup");
+            return false;
+        }
+        try {
+            new TrainingRun().payment();
+            log.info("Training payment completed through {}", RUNTIME_URL);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.warn("No training payment through {}, the class-data sharing archive only covers startup: {}",
+                RUNTIME_URL, e.toString());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void payment() throws IOException, InterruptedException {
+        var id = UUID.randomUUID().toString();
+        var source = "training-a-" + id;
+        var destination = "training-b-" + id;
+
+        //the first calls also wait for the runtime to discover this service
+        untilOk(post("/account/" + source + "/create/100"));
+        untilOk(post("/account/" + destination + "/create/100"));
+        untilOk(post("/transaction/training-" + id + "/process/" + source + "/" + destination + "/10"));
+
+        var status = HttpRequest.newBuilder(URI.create(RUNTIME_URL + "/transaction/training-" + id)).GET().build();
+        while (!send(status).body().contains("TRANSACTION_COMPLETED")) pause();
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create(RUNTIME_URL + path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private void untilOk(HttpRequest request) throws IOException, InterruptedException {
+        while (send(request).statusCode() / 100 != 2) pause();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                if (System.nanoTime() - deadline > 0) throw e;
+                pause();
+            }
+        }
+    }
+
+    private void pause() throws InterruptedException {
+        if (System.nanoTime() - deadline > 0)
+            throw new IllegalStateException("timed out after " + TIMEOUT);
+        Thread.sleep(RETRY_INTERVAL.toMillis());
+    }
+
+}
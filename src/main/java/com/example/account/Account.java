@@ -3,6 +3,7 @@ package com.example.account;
 import com.example.util.Validator;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.typesafe.config.ConfigFactory;
 import io.grpc.Status;
 import kalix.javasdk.annotations.EventHandler;
 import kalix.javasdk.annotations.Id;
@@ -14,8 +15,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
 import static com.example.util.Validator.*;
 
 @Id("id")
@@ -25,6 +33,29 @@ public class Account extends EventSourcedEntity<Account.State, Account.Event> {
 
     private static final Logger log = LoggerFactory.getLogger(Account.class);
 
+    private static final RuleSet<State> DEPOSIT_RULES = Validator.<State>rules()
+        .isTrue(State::isEmpty, "ACCOUNT_NOT_FOUND", "Account [%s] Doesn't Exist")
+        .compile();
+
+    private static final RuleSet<State> WITHDRAW_RULES = Validator.<State>rules()
+        .isTrue(State::isEmpty, "ACCOUNT_NOT_FOUND", "Account [%s] Doesn't Exist")
+        .isLtZero(State::available, "INSUFFICIENT_FUNDS", "Insufficient funds")
+        .mode(Mode.FAIL_FAST)
+        .compile();
+
+    /**
+     * Holds outlive the transaction workflow timeout, so an abandoned hold only blocks
+     * funds until it expires.
+     */
+    private static final Duration HOLD_TTL = Duration.ofMinutes(5);
+
+    private static final String DEPOSIT = "deposit";
+    private static final String WITHDRAW = "withdraw";
+    private static final String CAPTURE = "capture";
+    private static final String RELEASE = "release";
+    private static final String REFUND = "refund";
+    private static final String REFUSE = "refuse";
+
     @Override
     public State emptyState() { return State.emptyState(); }
 
@@ -42,42 +73,228 @@ public class Account extends EventSourcedEntity<Account.State, Account.Event> {
             });
     }
 
-    @PostMapping("/deposit/{amount}")
-    public Effect<DepositResult> deposit(@PathVariable int amount) {
+    /**
+     * Deposits are keyed by the transaction id: a deposit the account has recently applied
+     * for the same transaction is acknowledged again without being applied twice. Funds moved
+     * in from another shard are kept on record until the move is settled, so a move is never
+     * deposited twice however late it is sent again, see {@link ShardRebalancer}.
+     */
+    @PostMapping("/deposit/{txId}/{amount}")
+    public Effect<DepositResult> deposit(@PathVariable String txId, @PathVariable int amount) {
         State current = currentState();
+        if(current.recent().contains(DEPOSIT, txId) || current.findCredit(txId) != null)
+            return effects().reply(new DepositResult.DepositSucceed());
+        if(current.recent().contains(REFUSE, txId))
+            return effects().reply(new DepositResult.DepositFailed(refused(txId)));
+
         State updated = current.deposit(amount);
-        return Validator
-            .validate(
-                isTrue(current.isEmpty(), "Account [" + commandContext().entityId() + "] Doesn't Exist")
-            )
-            .handle((result, err) -> switch(result){
+        return DEPOSIT_RULES
+            .check(current, commandContext().entityId(), (result, err) -> switch(result){
+                case SUCCESS -> effects()
+                    .emitEvent(new Event.FundsDeposited(updated.balance, current.balance, txId))
+                    .thenReply(__ -> new DepositResult.DepositSucceed());
+                case ERROR -> effects()
+                    .reply(new DepositResult.DepositFailed(err));
+            });
+    }
+
+    /**
+     * Deposits the credits clearing aggregated for this account with a single event. Credits
+     * of transactions the account recently applied, or repeated within the batch, are skipped.
+     * A batch with a refused credit is rejected as a whole, as all its clearings get the same
+     * outcome.
+     */
+    @PostMapping("/deposit-batch")
+    public Effect<DepositResult> depositBatch(@RequestBody Credits request) {
+        State current = currentState();
+        var credits = new ArrayList<Credit>(request.credits().size());
+        var batched = new HashSet<String>();
+        var total = 0;
+        for(Credit credit : request.credits()) {
+            if(current.recent().contains(REFUSE, credit.txId()) && !current.recent().contains(DEPOSIT, credit.txId()))
+                return effects().reply(new DepositResult.DepositFailed(refused(credit.txId())));
+            if(current.recent().contains(DEPOSIT, credit.txId()) || !batched.add(credit.txId())) continue;
+            credits.add(credit);
+            total += credit.amount();
+        }
+        if(credits.isEmpty())
+            return effects().reply(new DepositResult.DepositSucceed());
+
+        State updated = current.deposit(total);
+        return DEPOSIT_RULES
+            .check(current, commandContext().entityId(), (result, err) -> switch(result){
                 case SUCCESS -> effects()
-                    .emitEvent(new Event.FundsDeposited(updated.balance, current.balance))
+                    .emitEvent(new Event.FundsDepositedBatch(updated.balance, current.balance, credits))
                     .thenReply(__ -> new DepositResult.DepositSucceed());
                 case ERROR -> effects()
                     .reply(new DepositResult.DepositFailed(err));
             });
     }
 
-    @PostMapping("/withdraw/{amount}")
-    public Effect<WithdrawResult> withdraw(@PathVariable int amount) {
+    /**
+     * Withdrawals are keyed by the transaction id like deposits. A withdrawal the account
+     * still has on record as a debit is acknowledged again however old it is.
+     */
+    @PostMapping("/withdraw/{txId}/{amount}")
+    public Effect<WithdrawResult> withdraw(@PathVariable String txId, @PathVariable int amount) {
         State current = currentState();
+        if(current.recent().contains(WITHDRAW, txId) || current.findDebit(txId) != null)
+            return effects().reply(new WithdrawResult.WithdrawSucceed());
+
         State updated = current.withdraw(amount);
-        return Validator
-            .validate(
-                isTrue(current.isEmpty(), "Account [" + commandContext().entityId() + "] Doesn't Exist"),
-                isLtZero(updated.balance, "Insufficient funds")
-            )
-            .mode(Mode.FAIL_FAST)
-            .handle((result, err) -> switch(result){
+        return WITHDRAW_RULES
+            .check(updated, commandContext().entityId(), (result, err) -> switch(result){
                 case SUCCESS -> effects()
-                    .emitEvent(new Event.FundsWithdrawn(updated.balance, current.balance))
+                    .emitEvent(new Event.FundsWithdrawn(updated.balance, current.balance, txId))
                     .thenReply(__ -> new WithdrawResult.WithdrawSucceed());
                 case ERROR -> effects()
                     .reply(new WithdrawResult.WithdrawFailed(err));
             });
     }
 
+    /**
+     * Reserves funds against the available balance. The hold id is the transaction id, so
+     * placing a hold that is still active, or was already captured, is a no-op. A hold that
+     * expired no longer reserves anything and is placed again, against the funds available now.
+     */
+    @PostMapping("/hold/{holdId}/place/{amount}")
+    public Effect<HoldResult> placeHold(@PathVariable String holdId, @PathVariable int amount) {
+        State current = currentState();
+        var now = System.currentTimeMillis();
+        Hold existing = current.findHold(holdId);
+        if((existing != null && existing.isActive(now)) || current.findDebit(holdId) != null)
+            return effects().reply(new HoldResult.HoldSucceed());
+
+        var hold = new Hold(holdId, amount, now + HOLD_TTL.toMillis());
+        State updated = current.placeHold(hold, now);
+        return WITHDRAW_RULES
+            .check(updated, commandContext().entityId(), (result, err) -> switch(result){
+                case SUCCESS -> effects()
+                    .emitEvent(new Event.HoldPlaced(holdId, amount, now, hold.expiresAt()))
+                    .thenReply(__ -> new HoldResult.HoldSucceed());
+                case ERROR -> effects()
+                    .reply(new HoldResult.HoldFailed(err));
+            });
+    }
+
+    /**
+     * Turns a hold into a withdrawal. An expired hold that has not been pruned yet can still
+     * be captured, as long as the funds are still available. Capturing a hold that was
+     * already captured succeeds again, so a retried clearing does not fail on it.
+     */
+    @PostMapping("/hold/{holdId}/capture")
+    public Effect<HoldResult> captureHold(@PathVariable String holdId) {
+        State current = currentState();
+        Hold hold = current.findHold(holdId);
+        if(hold == null && (current.recent().contains(CAPTURE, holdId) || current.findDebit(holdId) != null))
+            return effects().reply(new HoldResult.HoldSucceed());
+        if(hold == null)
+            return effects().reply(new HoldResult.HoldFailed("Hold [" + holdId + "] Not Found"));
+
+        State updated = current.captureHold(hold);
+        return WITHDRAW_RULES
+            .check(updated, commandContext().entityId(), (result, err) -> switch(result){
+                case SUCCESS -> effects()
+                    .emitEvent(new Event.HoldCaptured(holdId, updated.balance, current.balance))
+                    .thenReply(__ -> new HoldResult.HoldSucceed());
+                case ERROR -> effects()
+                    .reply(new HoldResult.HoldFailed(err));
+            });
+    }
+
+    /**
+     * Releasing a hold that was recently released succeeds again, like capturing it.
+     */
+    @PostMapping("/hold/{holdId}/release")
+    public Effect<HoldResult> releaseHold(@PathVariable String holdId) {
+        State current = currentState();
+        if(current.findHold(holdId) == null && current.recent().contains(RELEASE, holdId))
+            return effects().reply(new HoldResult.HoldSucceed());
+        if(current.findHold(holdId) == null)
+            return effects().reply(new HoldResult.HoldFailed("Hold [" + holdId + "] Not Found"));
+
+        return effects()
+            .emitEvent(new Event.HoldReleased(holdId))
+            .thenReply(__ -> new HoldResult.HoldSucceed());
+    }
+
+    /**
+     * Undoes what a transaction took from the account, deciding in a single command: a hold
+     * still in place is released, and the debit of a withdrawal or captured hold is refunded,
+     * for the amount the account recorded. Reversing a recently reversed transaction succeeds
+     * again without changing anything. A transaction the account has no record of fails, as
+     * the account cannot tell whether it took anything.
+     */
+    @PostMapping("/reverse/{txId}")
+    public Effect<DepositResult> reverse(@PathVariable String txId) {
+        State current = currentState();
+        if(current.findHold(txId) != null)
+            return effects()
+                .emitEvent(new Event.HoldReleased(txId))
+                .thenReply(__ -> new DepositResult.DepositSucceed());
+
+        Debit debit = current.findDebit(txId);
+        if(debit == null) {
+            var recent = current.recent();
+            if(recent.contains(RELEASE, txId) || recent.contains(REFUND, txId))
+                return effects().reply(new DepositResult.DepositSucceed());
+            log.warn("Nothing on record to reverse for transaction [{}] on account [{}]", txId, commandContext().entityId());
+            return effects().reply(new DepositResult.DepositFailed("Nothing on record to reverse for transaction [" + txId + "]"));
+        }
+
+        State updated = current.deposit(debit.amount());
+        return DEPOSIT_RULES
+            .check(current, commandContext().entityId(), (result, err) -> switch(result){
+                case SUCCESS -> effects()
+                    .emitEvent(new Event.FundsRefunded(updated.balance, current.balance, txId))
+                    .thenReply(__ -> new DepositResult.DepositSucceed());
+                case ERROR -> effects()
+                    .reply(new DepositResult.DepositFailed(err));
+            });
+    }
+
+    /**
+     * Tells whether the deposit of a transaction was made, for the reconciliation of a clearing
+     * whose outcome is unknown. A deposit that was not made is refused from then on, so that a
+     * clearing still in flight cannot credit the account once its payment is reversed. Like
+     * the deduplication of deposits, this relies on the account's recent transactions.
+     */
+    @PostMapping("/close-deposit/{txId}")
+    public Effect<Boolean> closeDeposit(@PathVariable String txId) {
+        State current = currentState();
+        if(current.recent().contains(DEPOSIT, txId) || current.findCredit(txId) != null)
+            return effects().reply(true);
+        if(current.isEmpty() || current.recent().contains(REFUSE, txId))
+            return effects().reply(false);
+        return effects()
+            .emitEvent(new Event.DepositRefused(txId))
+            .thenReply(__ -> false);
+    }
+
+    /**
+     * Drops the debit of a transaction that completed, which can no longer be reversed, or
+     * the credit of a move that completed. Settling a transaction without either on record
+     * is a no-op.
+     */
+    @PostMapping("/settle/{txId}")
+    public Effect<String> settle(@PathVariable String txId) {
+        if(currentState().findDebit(txId) == null && currentState().findCredit(txId) == null)
+            return effects().reply("ok");
+        return effects()
+            .emitEvent(new Event.TransactionSettled(txId))
+            .thenReply(__ -> "ok");
+    }
+
+    /**
+     * Moves between shards this account took part in that were not settled yet.
+     */
+    @GetMapping("/pending-moves")
+    public Effect<PendingMoves> pendingMoves(){
+        var debits = new ArrayList<Debit>();
+        for(Debit debit : currentState().debits()) if(ShardRebalancer.isMove(debit.txId())) debits.add(debit);
+        return effects().reply(new PendingMoves(debits, currentState().credits()));
+    }
+
     @GetMapping
     public Effect<Integer> get(){
         if(currentState().isEmpty())
@@ -85,9 +302,19 @@ public class Account extends EventSourcedEntity<Account.State, Account.Event> {
         return effects().reply(currentState().balance);
     }
 
+    /**
+     * The balance minus the funds held by active holds.
+     */
+    @GetMapping("/available")
+    public Effect<Integer> available(){
+        if(currentState().isEmpty())
+            return effects().error("Not found", Status.Code.NOT_FOUND);
+        return effects().reply(currentState().available());
+    }
+
     @GetMapping("/verify-funds/{amount}")
     public Effect<Boolean> verifyFunds(@PathVariable int amount){
-        return effects().reply(currentState().balance >= amount);
+        return effects().reply(currentState().available() >= amount);
     }
 
     @EventHandler
@@ -97,12 +324,57 @@ public class Account extends EventSourcedEntity<Account.State, Account.Event> {
 
     @EventHandler
     public State onFundsDeposited(Event.FundsDeposited event) {
-        return currentState().balance(event.newBalance);
+        var state = currentState().balance(event.newBalance).applied(DEPOSIT, event.txId);
+        if(!ShardRebalancer.isMove(event.txId)) return state;
+        return state.credited(event.txId, event.newBalance - event.prevBalance);
+    }
+
+    @EventHandler
+    public State onFundsDepositedBatch(Event.FundsDepositedBatch event) {
+        var state = currentState().balance(event.newBalance);
+        for(Credit credit : event.credits) state = state.applied(DEPOSIT, credit.txId());
+        return state;
     }
 
     @EventHandler
     public State onFundsWithdrawn(Event.FundsWithdrawn event) {
-        return currentState().balance(event.newBalance);
+        return currentState().balance(event.newBalance).applied(WITHDRAW, event.txId)
+            .debited(event.txId, event.prevBalance - event.newBalance);
+    }
+
+    @EventHandler
+    public State onHoldPlaced(Event.HoldPlaced event) {
+        return currentState().placeHold(new Hold(event.holdId, event.amount, event.expiresAt), event.placedAt);
+    }
+
+    @EventHandler
+    public State onHoldCaptured(Event.HoldCaptured event) {
+        return currentState().releaseHold(event.holdId).balance(event.newBalance).applied(CAPTURE, event.holdId)
+            .debited(event.holdId, event.prevBalance - event.newBalance);
+    }
+
+    @EventHandler
+    public State onHoldReleased(Event.HoldReleased event) {
+        return currentState().releaseHold(event.holdId).applied(RELEASE, event.holdId);
+    }
+
+    @EventHandler
+    public State onFundsRefunded(Event.FundsRefunded event) {
+        return currentState().balance(event.newBalance).applied(REFUND, event.txId).settled(event.txId);
+    }
+
+    @EventHandler
+    public State onTransactionSettled(Event.TransactionSettled event) {
+        return currentState().settled(event.txId);
+    }
+
+    @EventHandler
+    public State onDepositRefused(Event.DepositRefused event) {
+        return currentState().applied(REFUSE, event.txId);
+    }
+
+    private static String refused(String txId) {
+        return "Deposit of transaction [" + txId + "] was refused by its reconciliation";
     }
 
     public sealed interface Event {
@@ -110,11 +382,49 @@ public class Account extends EventSourcedEntity<Account.State, Account.Event> {
         @TypeName("account-created")
         record AccountCreated(String id, int initBalance) implements Event {}
 
+        /**
+         * @param txId transaction the deposit belongs to, null for events stored before
+         *             deposits were keyed by transaction
+         */
         @TypeName("funds-deposited")
-        record FundsDeposited(int newBalance, int prevBalance) implements Event {}
+        record FundsDeposited(int newBalance, int prevBalance, String txId) implements Event {}
+
+        /**
+         * Credits of several transactions deposited at once, see {@link Account#depositBatch}.
+         */
+        @TypeName("funds-deposited-batch")
+        record FundsDepositedBatch(int newBalance, int prevBalance, List<Credit> credits) implements Event {}
 
         @TypeName("funds-withdrawn")
-        record FundsWithdrawn(int newBalance, int prevBalance) implements Event {}
+        record FundsWithdrawn(int newBalance, int prevBalance, String txId) implements Event {}
+
+        @TypeName("hold-placed")
+        record HoldPlaced(String holdId, int amount, long placedAt, long expiresAt) implements Event {}
+
+        @TypeName("hold-captured")
+        record HoldCaptured(String holdId, int newBalance, int prevBalance) implements Event {}
+
+        @TypeName("hold-released")
+        record HoldReleased(String holdId) implements Event {}
+
+        /**
+         * Funds a transaction withdrew or captured, given back by {@link Account#reverse}.
+         */
+        @TypeName("funds-refunded")
+        record FundsRefunded(int newBalance, int prevBalance, String txId) implements Event {}
+
+        /**
+         * The transaction completed, its debit or the credit of a move is no longer kept, see
+         * {@link Account#settle}.
+         */
+        @TypeName("transaction-settled")
+        record TransactionSettled(String txId) implements Event {}
+
+        /**
+         * The deposit of the transaction was not made and is refused, see {@link Account#closeDeposit}.
+         */
+        @TypeName("deposit-refused")
+        record DepositRefused(String txId) implements Event {}
 
     }
 
@@ -144,18 +454,214 @@ public class Account extends EventSourcedEntity<Account.State, Account.Event> {
         }
     }
 
-    public record State(String id, int balance) {
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = Account.HoldResult.HoldSucceed.class, name = "hold-succeed"),
+        @JsonSubTypes.Type(value = Account.HoldResult.HoldFailed.class, name = "hold-failed")
+    })
+    public sealed interface HoldResult {
+        record HoldFailed(String errorMsg) implements Account.HoldResult {
+        }
+
+        record HoldSucceed() implements Account.HoldResult {
+        }
+    }
+
+    public record Credit(String txId, int amount) {}
+
+    public record Credits(List<Credit> credits) {}
+
+    /**
+     * @param debits  funds moved out to another shard
+     * @param credits funds moved in from another shard
+     */
+    public record PendingMoves(List<Debit> debits, List<Credit> credits) {}
+
+    /**
+     * Funds a withdrawal or a captured hold took from the account, kept until the transaction
+     * is reversed or settled.
+     */
+    public record Debit(String txId, int amount) {}
+
+    public record Hold(String holdId, int amount, long expiresAt) {
+
+        public boolean isActive(long now) {
+            return expiresAt > now;
+        }
+
+    }
+
+    /**
+     * The transactions most recently applied to an account, as 64-bit hashes of the operation
+     * and transaction id in a ring of at most {@link #CAPACITY} slots, from
+     * {@code payment-service.account.recent-transactions}. Retries of a deposit, withdrawal,
+     * capture, release or refund, and refused deposits, are recognized as long as fewer than {@code CAPACITY} newer
+     * operations were applied to the account since; older ones would be applied again.
+     *
+     * The ring is part of every snapshot, as a JSON array of up to {@code CAPACITY} numbers of
+     * about 20 bytes each, roughly 5 KB for 256 slots, and each applied event copies the array.
+     * It only grows to its capacity as transactions come in, so quiet accounts keep small
+     * snapshots. A ring stored with a larger capacity keeps its most recent entries.
+     */
+    public record RecentTransactions(long[] hashes, int next) {
+
+        public static final int CAPACITY = ConfigFactory.load().getInt("payment-service.account.recent-transactions");
+
+        public static final RecentTransactions EMPTY = new RecentTransactions(new long[0], 0);
+
+        public boolean contains(String operation, String txId) {
+            var hash = hash(operation, txId);
+            for(long existing : hashes) if(existing == hash) return true;
+            return false;
+        }
+
+        public RecentTransactions add(String operation, String txId) {
+            var hash = hash(operation, txId);
+            if(hashes.length < CAPACITY) {
+                var grown = Arrays.copyOf(hashes, hashes.length + 1);
+                grown[hashes.length] = hash;
+                return new RecentTransactions(grown, 0);
+            }
+            if(hashes.length > CAPACITY) {
+                var shrunk = new long[CAPACITY];
+                for(int i = 0; i < CAPACITY - 1; i++)
+                    shrunk[i] = hashes[Math.floorMod(next - (CAPACITY - 1) + i, hashes.length)];
+                shrunk[CAPACITY - 1] = hash;
+                return new RecentTransactions(shrunk, 0);
+            }
+            var updated = hashes.clone();
+            updated[next] = hash;
+            return new RecentTransactions(updated, (next + 1) % CAPACITY);
+        }
+
+        private static long hash(String operation, String txId) {
+            var hash = 0xcbf29ce484222325L;
+            for(int i = 0; i < operation.length(); i++) hash = (hash ^ operation.charAt(i)) * 0x100000001b3L;
+            hash = (hash ^ ':') * 0x100000001b3L;
+            for(int i = 0; i < txId.length(); i++) hash = (hash ^ txId.charAt(i)) * 0x100000001b3L;
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+
+    }
+
+    /**
+     * @param debits  funds taken by transactions that were neither reversed nor settled yet
+     * @param credits funds moved in from other shards by moves that were not settled yet
+     */
+    public record State(String id, int balance, List<Hold> holds, RecentTransactions recent, List<Debit> debits, List<Credit> credits) {
+
+        public State {
+            //snapshots taken before holds, recent transactions, debits or credits existed
+            if(holds == null) holds = List.of();
+            if(recent == null) recent = RecentTransactions.EMPTY;
+            if(debits == null) debits = List.of();
+            if(credits == null) credits = List.of();
+        }
+
+        public State(String id, int balance) {
+            this(id, balance, List.of(), RecentTransactions.EMPTY, List.of(), List.of());
+        }
 
         public State withdraw(int amount) {
-            return new State(id, balance - amount);
+            return new State(id, balance - amount, holds, recent, debits, credits);
         }
 
         public State deposit(int amount) {
-            return new State(id, balance + amount);
+            return new State(id, balance + amount, holds, recent, debits, credits);
         }
 
         public State balance(int amount) {
-            return new State(id, amount);
+            return new State(id, amount, holds, recent, debits, credits);
+        }
+
+        /**
+         * Remembers that the operation was applied for the transaction. Events stored before
+         * operations were keyed by transaction carry no txId and are not remembered.
+         */
+        public State applied(String operation, String txId) {
+            if(txId == null) return this;
+            return new State(id, balance, holds, recent.add(operation, txId), debits, credits);
+        }
+
+        /**
+         * Adds a hold, replacing an expired hold of the same id. Holds that had already expired
+         * at {@code now} are pruned, and remembered as released.
+         */
+        public State placeHold(Hold hold, long now) {
+            var updated = new ArrayList<Hold>(holds.size() + 1);
+            var released = recent;
+            for(Hold existing : holds) {
+                if(existing.isActive(now) && !existing.holdId().equals(hold.holdId())) updated.add(existing);
+                else released = released.add(RELEASE, existing.holdId());
+            }
+            updated.add(hold);
+            return new State(id, balance, updated, released, debits, credits);
+        }
+
+        public State captureHold(Hold hold) {
+            return new State(id, balance - hold.amount(), holds, recent, debits, credits).releaseHold(hold.holdId());
+        }
+
+        public State releaseHold(String holdId) {
+            var updated = new ArrayList<Hold>(holds.size());
+            for(Hold existing : holds) if(!existing.holdId().equals(holdId)) updated.add(existing);
+            return new State(id, balance, updated, recent, debits, credits);
+        }
+
+        /**
+         * Records the funds the transaction took. Events stored before operations were keyed
+         * by transaction carry no txId and leave no debit.
+         */
+        public State debited(String txId, int amount) {
+            if(txId == null) return this;
+            var updated = new ArrayList<Debit>(debits.size() + 1);
+            updated.addAll(debits);
+            updated.add(new Debit(txId, amount));
+            return new State(id, balance, holds, recent, updated, credits);
+        }
+
+        public State credited(String txId, int amount) {
+            var updated = new ArrayList<Credit>(credits.size() + 1);
+            updated.addAll(credits);
+            updated.add(new Credit(txId, amount));
+            return new State(id, balance, holds, recent, debits, updated);
+        }
+
+        public State settled(String txId) {
+            if(findDebit(txId) == null && findCredit(txId) == null) return this;
+            var settledDebits = new ArrayList<Debit>(debits.size());
+            for(Debit debit : debits) if(!debit.txId().equals(txId)) settledDebits.add(debit);
+            var settledCredits = new ArrayList<Credit>(credits.size());
+            for(Credit credit : credits) if(!credit.txId().equals(txId)) settledCredits.add(credit);
+            return new State(id, balance, holds, recent, settledDebits, settledCredits);
+        }
+
+        public Debit findDebit(String txId) {
+            for(Debit debit : debits) if(debit.txId().equals(txId)) return debit;
+            return null;
+        }
+
+        public Credit findCredit(String txId) {
+            for(Credit credit : credits) if(credit.txId().equals(txId)) return credit;
+            return null;
+        }
+
+        public Hold findHold(String holdId) {
+            for(Hold hold : holds) if(hold.holdId().equals(holdId)) return hold;
+            return null;
+        }
+
+        /**
+         * Balance minus the funds reserved by holds that have not expired yet.
+         */
+        public int available() {
+            var now = System.currentTimeMillis();
+            var held = 0;
+            for(Hold hold : holds) if(hold.isActive(now)) held += hold.amount();
+            return balance - held;
         }
 
         public static State emptyState() {
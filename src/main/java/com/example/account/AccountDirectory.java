@@ -0,0 +1,37 @@
+package com.example.account;
+
+import com.example.util.ExistenceCache;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import kalix.javasdk.action.Action;
+import kalix.javasdk.annotations.Subscribe;
+
+@Subscribe.EventSourcedEntity(value = Account.class, ignoreUnknown = true)
+public class AccountDirectory extends Action {
+
+    /**
+     * AccountDirectory keeps the cache of account ids known to exist on this service
+     * instance, so validation can skip the entity call for them. Accounts are never deleted,
+     * so an id stays valid once created.
+     *
+     * The cache is filled from AccountCreated events and from the outcome of existence
+     * checks that had to call the entity. A created account also clears any negative entry.
+     * Each event is consumed by a single instance of the service, so only that instance's
+     * cache learns about the account from it; other instances ask the entity, once a
+     * negative entry they hold has expired after {@code negative-ttl}.
+     *
+     */
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.account-cache");
+
+    public static final ExistenceCache ACCOUNTS = new ExistenceCache(
+        config.getInt("capacity"),
+        config.getDuration("negative-ttl").toMillis()
+    );
+
+    public Effect<String> onAccountCreated(Account.Event.AccountCreated event) {
+        ACCOUNTS.markExists(event.id());
+        return effects().ignore();
+    }
+
+}
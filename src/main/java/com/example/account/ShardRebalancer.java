@@ -0,0 +1,245 @@
+package com.example.account;
+
+import com.example.account.Account.Debit;
+import com.example.account.Account.PendingMoves;
+import kalix.javasdk.client.ComponentClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.example.account.Account.DepositResult.*;
+import static com.example.account.Account.WithdrawResult.*;
+
+/**
+ * Takes funds of a striped account from the shard of a transaction, see {@link Striping}.
+ *
+ * A command taking funds goes to the shard of its transaction. When that shard alone does not
+ * have enough available, funds are first moved into it from the other shards, largest
+ * available amount first, and the command is sent once more. Each move is keyed by the
+ * transaction and the donor shard, so a retried command never moves the same funds twice, and
+ * moves never change the balance of the logical account.
+ *
+ * A move withdraws from the donor and then deposits into the target shard, both keyed by the
+ * transaction, the donor and the amount moved. Both shards keep the move on record, as a debit
+ * of the donor and a credit of the target, until it is settled once the target has the funds.
+ * A deposit the target rejects is refunded to the donor. A deposit that fails without an
+ * answer is sent again, up to {@link #DEPOSIT_ATTEMPTS} times, which is safe as the target
+ * deduplicates it; when it still fails the command fails, and the move stays pending on the
+ * donor.
+ *
+ * Pending moves of an account are finished, or refunded when the target rejects them, by
+ * {@link #recover} before every command sent through {@link #onShard}, so by the retried
+ * step or the next payment from the account, and by the compensation and the failover of
+ * payments from the account. This costs a read of every shard per command on a striped account.
+ */
+public final class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final int DEPOSIT_ATTEMPTS = 3;
+
+    private static final String MOVE_PREFIX = "rebalance-";
+
+    private final ComponentClient client;
+
+    public ShardRebalancer(ComponentClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Sends the command to the shard of the transaction, and again after rebalancing when
+     * the shard rejects it and the account is striped. Pending moves of a striped account are
+     * recovered first.
+     *
+     * @param command  sends the command to the given Account entity
+     * @param rejected whether a result is a rejection that rebalancing may resolve
+     */
+    public <R> CompletionStage<R> onShard(String accountId, String txId, int amount,
+                                          Function<String, CompletionStage<R>> command, Predicate<R> rejected) {
+        var target = Striping.shardFor(accountId, txId);
+        if(!Striping.isStriped(accountId)) return command.apply(target);
+
+        return recover(accountId).thenCompose(__ -> command.apply(target)).thenCompose(result -> {
+            if(!rejected.test(result)) return CompletableFuture.completedFuture(result);
+            return rebalance(accountId, target, txId, amount).thenCompose(__ -> command.apply(target));
+        });
+    }
+
+    /**
+     * Moves funds from the other shards until the target shard has {@code amount} available,
+     * or the other shards have nothing left to give.
+     */
+    public CompletionStage<Void> rebalance(String accountId, String target, String txId, int amount) {
+        return available(accountId).thenCompose(shards -> {
+            var missing = amount;
+            var donors = new ArrayList<ShardFunds>();
+            for(ShardFunds shard : shards) {
+                if(shard.shardId().equals(target)) missing -= shard.available();
+                else if(shard.available() > 0) donors.add(shard);
+            }
+            donors.sort(Comparator.comparingInt(ShardFunds::available).reversed());
+
+            CompletionStage<Void> moves = CompletableFuture.completedFuture(null);
+            for(ShardFunds donor : donors) {
+                if(missing <= 0) break;
+                var part = Math.min(missing, donor.available());
+                missing -= part;
+                moves = moves.thenCompose(__ -> move(donor.shardId(), target, txId, part));
+            }
+            return moves;
+        });
+    }
+
+    /**
+     * Finishes the moves between shards of the account that are still pending: the deposit
+     * of a move still debited on its donor is sent again, or refunded to the donor when the
+     * target rejects it, and then settled. The credit of a move whose donor already settled
+     * it is settled as well. Never fails: a move that cannot be finished yet stays pending on
+     * its donor for the next recovery.
+     */
+    public CompletionStage<Void> recover(String accountId) {
+        if(!Striping.isStriped(accountId)) return CompletableFuture.completedFuture(null);
+
+        return pendingMoves(accountId).thenCompose(shards -> {
+            var debited = new HashSet<String>();
+            CompletionStage<Void> recovered = CompletableFuture.completedFuture(null);
+            for(ShardMoves shard : shards) {
+                for(Debit debit : shard.moves().debits()) {
+                    var txId = moveTxId(debit.txId(), shard.shardId(), debit.amount());
+                    if(txId == null) continue;
+                    var target = Striping.shardFor(accountId, txId);
+                    debited.add(debit.txId());
+                    log.warn("Recovering move [{}] of {} from [{}] to [{}]", debit.txId(), debit.amount(), shard.shardId(), target);
+                    recovered = recovered.thenCompose(__ -> deposit(shard.shardId(), target, debit.txId(), debit.amount(), 1));
+                }
+            }
+            for(ShardMoves shard : shards) {
+                for(Account.Credit credit : shard.moves().credits()) {
+                    if(debited.contains(credit.txId())) continue;
+                    recovered = recovered.thenCompose(__ -> settle(shard.shardId(), credit.txId()));
+                }
+            }
+            return recovered;
+        }).handle((__, error) -> {
+            if(error != null) log.warn("Pending moves of [{}] not recovered yet: {}", accountId, error.getMessage());
+            return null;
+        });
+    }
+
+    private CompletionStage<List<ShardMoves>> pendingMoves(String accountId) {
+        var shards = new ArrayList<CompletableFuture<ShardMoves>>();
+        for(int shard = 0; shard < Striping.shards(accountId); shard++) {
+            var shardId = Striping.shardId(accountId, shard);
+            shards.add(client.forEventSourcedEntity(shardId)
+                .call(Account::pendingMoves)
+                .execute()
+                .thenApply(moves -> new ShardMoves(shardId, moves))
+                .toCompletableFuture());
+        }
+        return CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new))
+            .thenApply(__ -> shards.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * The available funds of every shard of the account.
+     */
+    public CompletionStage<List<ShardFunds>> available(String accountId) {
+        var shards = new ArrayList<CompletableFuture<ShardFunds>>();
+        for(int shard = 0; shard < Striping.shards(accountId); shard++) {
+            var shardId = Striping.shardId(accountId, shard);
+            shards.add(client.forEventSourcedEntity(shardId)
+                .call(Account::available)
+                .execute()
+                .thenApply(available -> new ShardFunds(shardId, available))
+                .toCompletableFuture());
+        }
+        return CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new))
+            .thenApply(__ -> shards.stream().map(CompletableFuture::join).toList());
+    }
+
+    private CompletionStage<Void> move(String donor, String target, String txId, int amount) {
+        var moveId = moveId(txId, donor, amount);
+        return client.forEventSourcedEntity(donor)
+            .call(Account::withdraw)
+            .params(moveId, amount)
+            .execute()
+            .thenCompose(result -> switch(result){
+                case WithdrawSucceed __ -> deposit(donor, target, moveId, amount, 1);
+                case WithdrawFailed __ -> CompletableFuture.<Void>completedFuture(null);
+            });
+    }
+
+    private CompletionStage<Void> deposit(String donor, String target, String moveId, int amount, int attempt) {
+        return client.forEventSourcedEntity(target)
+            .call(Account::deposit)
+            .params(moveId, amount)
+            .execute()
+            .handle((result, error) -> {
+                if(error == null) return switch(result){
+                    case DepositSucceed __ -> settle(donor, moveId).thenCompose(settled -> settle(target, moveId));
+                    case DepositFailed failed -> refund(donor, moveId, failed.errorMsg());
+                };
+                if(attempt < DEPOSIT_ATTEMPTS) return deposit(donor, target, moveId, amount, attempt + 1);
+
+                log.warn("Move [{}] of {} from [{}] to [{}] left pending, it has no known outcome at the target: {}",
+                    moveId, amount, donor, target, error.getMessage());
+                return CompletableFuture.<Void>failedFuture(error);
+            })
+            .thenCompose(next -> next);
+    }
+
+    private CompletionStage<Void> settle(String shardId, String moveId) {
+        return client.forEventSourcedEntity(shardId)
+            .call(Account::settle)
+            .params(moveId)
+            .execute()
+            .thenApply(__ -> null);
+    }
+
+    private CompletionStage<Void> refund(String donor, String moveId, String reason) {
+        log.warn("Move [{}] rejected by the target shard, refunding [{}]: {}", moveId, donor, reason);
+        return client.forEventSourcedEntity(donor)
+            .call(Account::reverse)
+            .params(moveId)
+            .execute()
+            .thenApply(refunded -> switch(refunded){
+                case DepositSucceed __ -> (Void) null;
+                case DepositFailed error ->
+                    throw new IllegalStateException("Could not refund move [" + moveId + "] to [" + donor + "]: " + error.errorMsg());
+            });
+    }
+
+    /**
+     * Whether the transaction id of an event on a shard is that of a move between shards.
+     */
+    public static boolean isMove(String txId) {
+        return txId != null && txId.startsWith(MOVE_PREFIX);
+    }
+
+    static String moveId(String txId, String donor, int amount) {
+        return MOVE_PREFIX + txId + "-" + donor + "-" + amount;
+    }
+
+    /**
+     * The transaction of a move out of the donor, or null when the id is not that of a move
+     * of the given amount out of the donor.
+     */
+    static String moveTxId(String moveId, String donor, int amount) {
+        var suffix = "-" + donor + "-" + amount;
+        if(!isMove(moveId) || !moveId.endsWith(suffix) || moveId.length() <= MOVE_PREFIX.length() + suffix.length()) return null;
+        return moveId.substring(MOVE_PREFIX.length(), moveId.length() - suffix.length());
+    }
+
+    public record ShardFunds(String shardId, int available) {}
+
+    private record ShardMoves(String shardId, PendingMoves moves) {}
+
+}
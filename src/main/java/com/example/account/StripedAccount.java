@@ -0,0 +1,118 @@
+package com.example.account;
+
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.javasdk.action.Action;
+import kalix.javasdk.client.ComponentClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static com.example.account.Account.WithdrawResult.WithdrawFailed;
+
+@RequestMapping("/striped-account/{id}")
+public class StripedAccount extends Action {
+
+    /**
+     * StripedAccount is the account API of striped accounts, see {@link Striping}.
+     *
+     * Credits are spread over the shards by transaction id and the balance is the sum of the
+     * shard balances. A withdrawal is taken from the shard of its transaction, after moving
+     * funds into it from the other shards when it alone does not have enough available, see
+     * {@link ShardRebalancer}.
+     *
+     * For accounts that are not striped every command goes to the account entity itself.
+     *
+     */
+
+    private final ComponentClient client;
+
+    private final ShardRebalancer rebalancer;
+
+    public StripedAccount(ComponentClient client) {
+        this.client = client;
+        this.rebalancer = new ShardRebalancer(client);
+    }
+
+    /**
+     * Creates every shard, with the initial balance on the primary shard.
+     */
+    @PostMapping("/create/{initBalance}")
+    public Effect<String> create(@PathVariable String id, @PathVariable int initBalance) {
+        var shards = new CompletableFuture<?>[Striping.shards(id)];
+        for(int shard = 0; shard < shards.length; shard++) {
+            var shardId = Striping.shardId(id, shard);
+            shards[shard] = client.forEventSourcedEntity(shardId)
+                .call(Account::create)
+                .params(shardId, shard == 0 ? initBalance : 0)
+                .execute()
+                .toCompletableFuture();
+        }
+        return effects().asyncReply(CompletableFuture.allOf(shards).thenApply(__ -> "ok"));
+    }
+
+    @PostMapping("/deposit/{txId}/{amount}")
+    public Effect<Account.DepositResult> deposit(@PathVariable String id, @PathVariable String txId, @PathVariable int amount) {
+        return effects().forward(
+            client.forEventSourcedEntity(Striping.shardFor(id, txId))
+                .call(Account::deposit)
+                .params(txId, amount)
+        );
+    }
+
+    @PostMapping("/withdraw/{txId}/{amount}")
+    public Effect<Account.WithdrawResult> withdraw(@PathVariable String id, @PathVariable String txId, @PathVariable int amount) {
+        if(!Striping.isStriped(id)) return effects().forward(withdrawCall(id, txId, amount));
+
+        return effects().asyncReply(rebalancer.onShard(id, txId, amount,
+            shardId -> withdrawCall(shardId, txId, amount).execute(),
+            WithdrawFailed.class::isInstance));
+    }
+
+    /**
+     * Finishes the moves between the shards of the account left pending, see
+     * {@link ShardRebalancer#recover}.
+     */
+    @PostMapping("/recover-moves")
+    public Effect<String> recoverMoves(@PathVariable String id) {
+        return effects().asyncReply(rebalancer.recover(id).thenApply(__ -> "ok"));
+    }
+
+    @GetMapping
+    public Effect<Integer> get(@PathVariable String id) {
+        return effects().asyncReply(balances(id).thenApply(balances -> {
+            var total = 0;
+            for(ShardBalance shard : balances) total += shard.balance();
+            return total;
+        }));
+    }
+
+    private CompletionStage<List<ShardBalance>> balances(String id) {
+        var shards = new ArrayList<CompletableFuture<ShardBalance>>();
+        for(int shard = 0; shard < Striping.shards(id); shard++) {
+            var shardId = Striping.shardId(id, shard);
+            shards.add(client.forEventSourcedEntity(shardId)
+                .call(Account::get)
+                .execute()
+                .thenApply(balance -> new ShardBalance(shardId, balance))
+                .toCompletableFuture());
+        }
+        return CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new))
+            .thenApply(__ -> shards.stream().map(CompletableFuture::join).toList());
+    }
+
+    private DeferredCall<Any, Account.WithdrawResult> withdrawCall(String shardId, String txId, int amount) {
+        return client.forEventSourcedEntity(shardId)
+            .call(Account::withdraw)
+            .params(txId, amount);
+    }
+
+    private record ShardBalance(String shardId, int balance) {}
+
+}
@@ -0,0 +1,83 @@
+package com.example.account;
+
+import com.typesafe.config.ConfigFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Logical accounts backed by several Account entities, the shards, so that credits to a hot
+ * account are not serialized through a single entity.
+ *
+ * Striped accounts and their shard count are listed in {@code payment-service.striping.accounts}.
+ * Shard {@code n} of account {@code id} is the Account entity {@code id#n}. Every command a
+ * transaction sends to an account goes to the shard picked by the hash of its txId, so a
+ * retried command reaches the same shard and is deduplicated there. Accounts that are not
+ * listed have a single shard, the entity with the account id itself.
+ */
+public final class Striping {
+
+    private static final char SEPARATOR = '#';
+
+    private static final Map<String, Integer> SHARDS = load();
+
+    private Striping() {}
+
+    public static int shards(String accountId) {
+        return SHARDS.getOrDefault(accountId, 1);
+    }
+
+    public static boolean isStriped(String accountId) {
+        return shards(accountId) > 1;
+    }
+
+    public static String shardId(String accountId, int shard) {
+        return isStriped(accountId) ? accountId + SEPARATOR + shard : accountId;
+    }
+
+    /**
+     * The entity a transaction addresses for the account.
+     */
+    public static String shardFor(String accountId, String txId) {
+        var shards = shards(accountId);
+        if (shards == 1) return accountId;
+        return shardId(accountId, Math.floorMod(mix(txId.hashCode()), shards));
+    }
+
+    /**
+     * The shard created first, used to check that a striped account exists.
+     */
+    public static String primary(String accountId) {
+        return shardId(accountId, 0);
+    }
+
+    /**
+     * The logical account of an Account entity id.
+     */
+    public static String logical(String entityId) {
+        var separator = entityId.lastIndexOf(SEPARATOR);
+        if (separator < 0) return entityId;
+        var accountId = entityId.substring(0, separator);
+        return isStriped(accountId) ? accountId : entityId;
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static Map<String, Integer> load() {
+        var accounts = ConfigFactory.load().getObject("payment-service.striping.accounts").unwrapped();
+        var shards = new HashMap<String, Integer>();
+        accounts.forEach((accountId, count) -> {
+            var n = ((Number) count).intValue();
+            if (n < 1) throw new IllegalArgumentException("Account [" + accountId + "] needs at least one shard");
+            shards.put(accountId, n);
+        });
+        return Map.copyOf(shards);
+    }
+
+}
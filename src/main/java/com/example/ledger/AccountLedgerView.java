@@ -0,0 +1,48 @@
+package com.example.ledger;
+
+import kalix.javasdk.annotations.Query;
+import kalix.javasdk.annotations.Subscribe;
+import kalix.javasdk.annotations.Table;
+import kalix.javasdk.annotations.ViewId;
+import kalix.javasdk.view.View;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+@ViewId("account-ledger")
+@Table("ledger_entries")
+@Subscribe.ValueEntity(LedgerEntryEntity.class)
+public class AccountLedgerView extends View<LedgerEntry> {
+
+    /**
+     * Ledger of an account over a time range, oldest first, one page at a time.
+     *
+     * Pass an empty pageToken for the first page and the returned nextPageToken for the
+     * following ones, until hasMore is false. {@code from} is inclusive, {@code to} exclusive,
+     * both in epoch milliseconds.
+     *
+     */
+    @GetMapping("/ledger/{accountId}")
+    @Query("""
+        SELECT * AS entries, next_page_token() AS nextPageToken, has_more() AS hasMore
+        FROM ledger_entries
+        WHERE accountId = :accountId AND timestamp >= :from AND timestamp < :to
+        ORDER BY timestamp
+        OFFSET page_token_offset(:pageToken)
+        LIMIT :pageSize
+        """)
+    public LedgerPage getLedger(
+        @PathVariable String accountId,
+        @RequestParam long from,
+        @RequestParam long to,
+        @RequestParam String pageToken,
+        @RequestParam int pageSize
+    ) {
+        return null;
+    }
+
+    public record LedgerPage(List<LedgerEntry> entries, String nextPageToken, boolean hasMore) {}
+
+}
@@ -0,0 +1,29 @@
+package com.example.ledger;
+
+/**
+ * One balance movement of an account, as shown on statements.
+ *
+ * @param amount signed change of the balance, negative for withdrawals
+ * @param balance balance of the account after the entry, null for striped accounts, whose
+ *                shards each only know their own part of the balance
+ * @param timestamp epoch milliseconds of the account event
+ * @param txId transaction that moved the balance, null for openings and older entries
+ */
+public record LedgerEntry(
+    String entryId,
+    String accountId,
+    Type type,
+    int amount,
+    Integer balance,
+    long timestamp,
+    String txId
+) {
+
+    public enum Type {
+        OPENING,
+        DEPOSIT,
+        WITHDRAWAL,
+        REFUND
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.example.ledger;
+
+import kalix.javasdk.annotations.Id;
+import kalix.javasdk.annotations.TypeId;
+import kalix.javasdk.valueentity.ValueEntity;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@Id("entryId")
+@TypeId("ledger-entry")
+@RequestMapping("/ledger-entry/{entryId}")
+public class LedgerEntryEntity extends ValueEntity<LedgerEntry> {
+
+    /**
+     * Kalix views keep one row per source entity, so each account event is projected into
+     * its own ledger entry entity for the ledger view to index. The entry id is derived from
+     * the account event, which makes a redelivered event overwrite the same entry.
+     *
+     */
+
+    @PutMapping
+    public Effect<String> record(@RequestBody LedgerEntry entry) {
+        return effects()
+            .updateState(entry)
+            .thenReply("ok");
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.example.ledger;
+
+import com.example.account.Account;
+import com.example.account.ShardRebalancer;
+import com.example.account.Striping;
+import com.google.protobuf.any.Any;
+import kalix.javasdk.DeferredCall;
+import kalix.javasdk.action.Action;
+import kalix.javasdk.annotations.Subscribe;
+import kalix.javasdk.client.ComponentClient;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.ledger.LedgerEntry.Type.*;
+
+@Subscribe.EventSourcedEntity(value = Account.class, ignoreUnknown = true)
+public class LedgerProjector extends Action {
+
+    /**
+     * LedgerProjector turns the balance changing Account events into ledger entries.
+     *
+     * Holds being placed or released do not move the balance and are not on the ledger;
+     * a captured hold is recorded as a withdrawal, funds given back by a reversal as a refund.
+     *
+     * Entries of the shards of a striped account are recorded under the logical account,
+     * without a balance, since a shard only holds part of it. Funds moved between the shards
+     * by {@link ShardRebalancer} leave the balance of the account unchanged and are not on
+     * the ledger, and neither are the openings of the shards other than the primary one.
+     *
+     */
+
+    private final ComponentClient client;
+
+    public LedgerProjector(ComponentClient client) {
+        this.client = client;
+    }
+
+    public Effect<String> onAccountCreated(Account.Event.AccountCreated event) {
+        var entityId = entityId();
+        if (!entityId.equals(Striping.primary(Striping.logical(entityId)))) return effects().ignore();
+        return record(OPENING, event.initBalance(), event.initBalance(), null);
+    }
+
+    public Effect<String> onFundsDeposited(Account.Event.FundsDeposited event) {
+        return record(DEPOSIT, event.newBalance() - event.prevBalance(), event.newBalance(), event.txId());
+    }
+
+    public Effect<String> onFundsWithdrawn(Account.Event.FundsWithdrawn event) {
+        return record(WITHDRAWAL, event.newBalance() - event.prevBalance(), event.newBalance(), event.txId());
+    }
+
+    public Effect<String> onHoldCaptured(Account.Event.HoldCaptured event) {
+        return record(WITHDRAWAL, event.newBalance() - event.prevBalance(), event.newBalance(), event.holdId());
+    }
+
+    public Effect<String> onFundsRefunded(Account.Event.FundsRefunded event) {
+        return record(REFUND, event.newBalance() - event.prevBalance(), event.newBalance(), event.txId());
+    }
+
+    /**
+     * Credits aggregated by clearing are recorded one entry per transaction, each with the
+     * running balance after it. The entry of the i-th credit has the id of the event followed
+     * by {@code #i}; event ids end with the numeric event sequence, so these ids never collide
+     * with the entries of another event or account.
+     */
+    public Effect<String> onFundsDepositedBatch(Account.Event.FundsDepositedBatch event) {
+        var balance = event.prevBalance();
+        var entries = new CompletableFuture<?>[event.credits().size()];
+        for (int i = 0; i < entries.length; i++) {
+            var credit = event.credits().get(i);
+            balance += credit.amount();
+            var entry = entry("#" + i, DEPOSIT, credit.amount(), balance, credit.txId());
+            entries[i] = recordCall(entry).execute().toCompletableFuture();
+        }
+        return effects().asyncReply(CompletableFuture.allOf(entries).thenApply(__ -> "ok"));
+    }
+
+    private Effect<String> record(LedgerEntry.Type type, int amount, int balance, String txId) {
+        if (isShard(entityId()) && ShardRebalancer.isMove(txId)) return effects().ignore();
+        return effects().forward(recordCall(entry("", type, amount, balance, txId)));
+    }
+
+    private LedgerEntry entry(String suffix, LedgerEntry.Type type, int amount, int balance, String txId) {
+        var entityId = entityId();
+        var accountId = Striping.logical(entityId);
+        var metadata = actionContext().metadata();
+        var cloudEvent = metadata.asCloudEvent();
+        var entryId = entityId + "-" + metadata.get("ce-sequence").orElseGet(cloudEvent::id) + suffix;
+        var timestamp = cloudEvent.time()
+            .map(time -> time.toInstant().toEpochMilli())
+            .orElseGet(System::currentTimeMillis);
+
+        return new LedgerEntry(entryId, accountId, type, amount, isShard(entityId) ? null : balance, timestamp, txId);
+    }
+
+    private String entityId() {
+        return actionContext().eventSubject().orElseThrow();
+    }
+
+    private static boolean isShard(String entityId) {
+        return !Striping.logical(entityId).equals(entityId);
+    }
+
+    private DeferredCall<Any, String> recordCall(LedgerEntry entry) {
+        return client.forValueEntity(entry.entryId())
+            .call(LedgerEntryEntity::record)
+            .params(entry);
+    }
+
+}
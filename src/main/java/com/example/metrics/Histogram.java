@@ -0,0 +1,73 @@
+package com.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the spirit of HdrHistogram.
+ *
+ * Values below 64 get a bucket each; larger values are bucketed by power of two, with 32
+ * linear sub-buckets per power, which keeps the relative error of reported percentiles
+ * under about 3%. Recording is a couple of atomic increments on preallocated arrays, with
+ * no locks and no allocation, so it is safe to call from any handler thread.
+ */
+public final class Histogram {
+
+    private static final int LINEAR = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 6; // 2^6 == LINEAR
+    private static final int BUCKETS = LINEAR + (Long.SIZE - 1 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile, or 0 when nothing was recorded.
+     */
+    public long valueAt(double quantile) {
+        var count = total.get();
+        if (count == 0) return 0;
+        var rank = Math.max(1, (long) Math.ceil(quantile * count));
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(count(), valueAt(0.5), valueAt(0.9), valueAt(0.99), valueAt(0.999), max.get());
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) return (int) value;
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) return index;
+        var exponent = (index - LINEAR) / SUB_BUCKETS + FIRST_EXPONENT;
+        var subBucket = (index - LINEAR) % SUB_BUCKETS;
+        var width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+
+    public record Snapshot(long count, long p50, long p90, long p99, long p999, long max) {}
+
+}
@@ -0,0 +1,41 @@
+package com.example.metrics;
+
+import com.example.account.AccountDirectory;
+import com.example.mock.Clearing;
+import com.example.transaction.AdmissionControl;
+import com.example.util.ExistenceCache;
+import com.example.util.WindowedBatcher;
+import kalix.javasdk.action.Action;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@RequestMapping("/metrics")
+public class MetricsEndpoint extends Action {
+
+    /**
+     * Exposes the metrics collected by this service instance. Counters and histograms are
+     * cumulative since the instance started.
+     *
+     */
+
+    @GetMapping("/transactions")
+    public Effect<TransactionMetrics.Snapshot> transactions() {
+        return effects().reply(TransactionMetrics.snapshot());
+    }
+
+    @GetMapping("/account-cache")
+    public Effect<ExistenceCache.Stats> accountCache() {
+        return effects().reply(AccountDirectory.ACCOUNTS.stats());
+    }
+
+    @GetMapping("/clearing-aggregation")
+    public Effect<WindowedBatcher.Stats> clearingAggregation() {
+        return effects().reply(Clearing.CREDITS.stats());
+    }
+
+    @GetMapping("/admission")
+    public Effect<AdmissionControl.Stats> admission() {
+        return effects().reply(AdmissionControl.PAYMENTS.stats());
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.example.metrics;
+
+import com.example.transaction.TransactionWorkflow.State;
+import com.example.transaction.TransactionWorkflow.State.Outcome;
+import com.example.transaction.TransactionWorkflow.State.Status;
+import com.example.transaction.TransactionWorkflow.State.StepEntry;
+import com.example.transaction.TransactionWorkflow.State.StepId;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Step level metrics of the transaction workflows running in this service instance.
+ *
+ * Step latencies are taken from the step history the workflow records anyway: the time
+ * between the end of the previous step (or the start of the transaction) and the end of
+ * the step, in milliseconds. Every recording path only touches preallocated histograms
+ * and adders, indexed by enum ordinal.
+ */
+public final class TransactionMetrics {
+
+    private static final StepId[] STEPS = StepId.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private static final Histogram[][] stepLatency = new Histogram[STEPS.length][OUTCOMES.length];
+    private static final LongAdder[] attempts = new LongAdder[STEPS.length];
+    private static final LongAdder[] completions = new LongAdder[STEPS.length];
+    private static final LongAdder[] hedges = new LongAdder[STEPS.length];
+    private static final LongAdder[] statuses = new LongAdder[STATUSES.length];
+    private static final Histogram endToEnd = new Histogram();
+
+    static {
+        for (int step = 0; step < STEPS.length; step++) {
+            for (int outcome = 0; outcome < OUTCOMES.length; outcome++) stepLatency[step][outcome] = new Histogram();
+            attempts[step] = new LongAdder();
+            completions[step] = new LongAdder();
+            hedges[step] = new LongAdder();
+        }
+        for (int status = 0; status < STATUSES.length; status++) statuses[status] = new LongAdder();
+    }
+
+    private TransactionMetrics() {}
+
+    /**
+     * Counts a call of the step, retries included.
+     */
+    public static void attempt(StepId step) {
+        attempts[step.ordinal()].increment();
+    }
+
+    /**
+     * Counts a second, hedged call made by the step.
+     */
+    public static void hedge(StepId step) {
+        hedges[step.ordinal()].increment();
+    }
+
+    /**
+     * Latency of the step at the given quantile in milliseconds, the highest over its
+     * outcomes, or 0 when the step never completed.
+     */
+    public static long stepLatency(StepId step, double quantile) {
+        var latency = 0L;
+        for (Histogram histogram : stepLatency[step.ordinal()])
+            if (histogram.count() > 0) latency = Math.max(latency, histogram.valueAt(quantile));
+        return latency;
+    }
+
+    public static long stepSamples(StepId step) {
+        var samples = 0L;
+        for (Histogram histogram : stepLatency[step.ordinal()]) samples += histogram.count();
+        return samples;
+    }
+
+    /**
+     * Records the step that was just appended to the history of the given state, and the
+     * transaction itself when that step brought it to a terminal status.
+     */
+    public static void record(State state) {
+        var steps = state.history().steps();
+        if (steps.isEmpty()) return;
+
+        StepEntry last = steps.get(steps.size() - 1);
+        var previous = steps.size() > 1 ? steps.get(steps.size() - 2).at() : 0;
+        stepLatency[last.step().ordinal()][last.outcome().ordinal()].record(last.at() - previous);
+        completions[last.step().ordinal()].increment();
+
+        if (state.status().isTerminal()) {
+            statuses[state.status().ordinal()].increment();
+            endToEnd.record(last.at());
+        }
+    }
+
+    public static Snapshot snapshot() {
+        var steps = new ArrayList<StepMetrics>();
+        for (StepId step : STEPS) {
+            var attempted = attempts[step.ordinal()].sum();
+            var completed = completions[step.ordinal()].sum();
+            if (attempted == 0 && completed == 0) continue;
+
+            var latency = new LinkedHashMap<String, Histogram.Snapshot>();
+            for (Outcome outcome : OUTCOMES) {
+                var histogram = stepLatency[step.ordinal()][outcome.ordinal()];
+                if (histogram.count() > 0) latency.put(outcome.name(), histogram.snapshot());
+            }
+            steps.add(new StepMetrics(step.name(), attempted, completed, Math.max(0, attempted - completed), hedges[step.ordinal()].sum(), latency));
+        }
+
+        var terminal = new LinkedHashMap<String, Long>();
+        for (Status status : STATUSES) {
+            var count = statuses[status.ordinal()].sum();
+            if (count > 0) terminal.put(status.name(), count);
+        }
+
+        return new Snapshot(
+            endToEnd.snapshot(),
+            terminal,
+            steps,
+            completions[StepId.FAILOVER_HANDLER.ordinal()].sum(),
+            completions[StepId.COMPENSATE.ordinal()].sum(),
+            completions[StepId.RECONCILE.ordinal()].sum()
+        );
+    }
+
+    /**
+     * @param retries calls of the step beyond the ones that completed it
+     * @param hedges second calls made because the first one was slow
+     * @param latencyMillis latency percentiles by step outcome
+     */
+    public record StepMetrics(String step, long attempts, long completions, long retries, long hedges, Map<String, Histogram.Snapshot> latencyMillis) {}
+
+    public record Snapshot(
+        Histogram.Snapshot endToEndMillis,
+        Map<String, Long> terminalStatuses,
+        List<StepMetrics> steps,
+        long failovers,
+        long compensations,
+        long reconciliations
+    ) {}
+
+}
@@ -1,13 +1,22 @@
 package com.example.mock;
 
 import com.example.account.Account;
+import com.example.account.Striping;
+import com.example.util.WindowedBatcher;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
 import kalix.javasdk.action.Action;
 import kalix.javasdk.client.ComponentClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import static com.example.account.Account.DepositResult.*;
+import static com.example.account.Account.HoldResult.*;
 
 @RequestMapping("/clearing")
 public class Clearing extends Action {
@@ -17,9 +26,29 @@ public class Clearing extends Action {
      * receiving account(s) involved in the transaction.
      *
      * For the purpose of this demo, clearing will involve depositing funds int the
-     * destination account.
+     * destination account. When the funds were reserved with a hold on the source
+     * account, the hold is captured first, so a failed capture leaves both accounts
+     * untouched and a failed deposit is undone by the regular reversal. Once the deposit
+     * succeeded, the debit the source account kept for the transaction is settled, as the
+     * transaction can no longer be reversed.
+     *
+     * With payment-service.clearing.aggregation enabled, credits to the same destination
+     * within a short window are deposited together with a single command and event. Each
+     * transaction is still listed in that event, and each clearing gets the batch outcome.
      *
      */
+
+    private static final Config aggregation = ConfigFactory.load().getConfig("payment-service.clearing.aggregation");
+
+    private static final boolean AGGREGATE = aggregation.getBoolean("enabled");
+
+    private static final Set<String> AGGREGATED_ACCOUNTS = Set.copyOf(aggregation.getStringList("accounts"));
+
+    public static final WindowedBatcher<Account.Credit, Account.DepositResult> CREDITS = new WindowedBatcher<>(
+        aggregation.getDuration("window").toMillis(),
+        aggregation.getInt("max-credits")
+    );
+
     private final ComponentClient client;
 
     public Clearing(ComponentClient client) {
@@ -29,22 +58,94 @@ public class Clearing extends Action {
     @PostMapping("/clear")
     public Effect<ClearingResult> clear(@RequestBody Clear.Funds request) {
 
-        var deposit = client.forEventSourcedEntity(request.account)
-            .call(Account::deposit)
-            .params(request.amount)
+        if(request.source == null) return effects().asyncReply(deposit(request));
+
+        var capture = client.forEventSourcedEntity(Striping.shardFor(request.source, request.txId))
+            .call(Account::captureHold)
+            .params(request.txId)
+            .execute();
+
+        return effects().asyncReply(capture.thenCompose(result -> switch(result){
+            case HoldSucceed __ -> deposit(request);
+            case HoldFailed error -> CompletableFuture.completedFuture(new ClearingResult.Rejected(error.errorMsg()));
+        }));
+
+    }
+
+    private CompletionStage<ClearingResult> deposit(Clear.Funds request) {
+        var accountId = Striping.shardFor(request.account, request.txId);
+        var deposit = aggregated(request.account)
+            ? CREDITS.add(accountId, new Account.Credit(request.txId, request.amount), credits ->
+                client.forEventSourcedEntity(accountId)
+                    .call(Account::depositBatch)
+                    .params(new Account.Credits(credits))
+                    .execute())
+            : client.forEventSourcedEntity(accountId)
+                .call(Account::deposit)
+                .params(request.txId, request.amount)
+                .execute();
+
+        return deposit
+            .thenCompose(result -> switch(result){
+                case DepositSucceed __ -> settle(request);
+                case DepositFailed error -> CompletableFuture.completedFuture(new ClearingResult.Rejected(error.errorMsg()));
+            });
+    }
+
+    /**
+     * Fails the clearing when the debit could not be settled, so the step is retried; the
+     * capture and the deposit are deduplicated by the accounts.
+     */
+    private CompletionStage<ClearingResult> settle(Clear.Funds request) {
+        if(request.debited == null) return CompletableFuture.completedFuture(new ClearingResult.Accepted());
+        return client.forEventSourcedEntity(Striping.shardFor(request.debited, request.txId))
+            .call(Account::settle)
+            .params(request.txId)
             .execute()
-            .toCompletableFuture().join();
+            .thenApply(__ -> new ClearingResult.Accepted());
+    }
+
+    /**
+     * Resolves a clearing whose outcome is unknown, after its step failed without an answer.
+     * The destination tells whether it has the deposit of the transaction, refusing it from
+     * then on when it does not, see {@link Account#closeDeposit}. Accepted when the deposit
+     * was made, after settling the debit of the source like a clearing does. Rejected when it
+     * was not, for the payment to be compensated: the source then still has the hold or the
+     * debit of the transaction, which the reversal gives back.
+     */
+    @PostMapping("/reconcile")
+    public Effect<ClearingResult> reconcile(@RequestBody Clear.Funds request) {
+
+        var deposited = client.forEventSourcedEntity(Striping.shardFor(request.account, request.txId))
+            .call(Account::closeDeposit)
+            .params(request.txId)
+            .execute();
+
+        return effects().asyncReply(deposited.thenCompose(made -> made
+            ? settle(request)
+            : CompletableFuture.completedFuture(new ClearingResult.Rejected("Deposit of transaction [" + request.txId + "] was not made"))));
 
-        return switch(deposit){
-            case DepositSucceed __ -> effects().reply(new ClearingResult.Accepted());
-            case DepositFailed error -> effects().reply(new ClearingResult.Rejected(error.errorMsg()));
-        };
+    }
 
+    private static boolean aggregated(String account) {
+        return AGGREGATE && (AGGREGATED_ACCOUNTS.isEmpty() || AGGREGATED_ACCOUNTS.contains(account));
     }
 
     public sealed interface Clear {
 
-        record Funds(String txId, String account, int amount) implements Clear {}
+        /**
+         * @param source  account holding a reservation for this transaction, or null when the
+         *                funds were already withdrawn by the posting step
+         * @param debited account whose debit is settled once the funds are deposited, null for
+         *                clearings started before debits were kept
+         */
+        record Funds(String txId, String account, int amount, String source, String debited) implements Clear {
+
+            public Funds(String txId, String account, int amount) {
+                this(txId, account, amount, null, null);
+            }
+
+        }
 
     }
 
@@ -1,7 +1,11 @@
 package com.example.mock;
 
 import com.example.util.Validator;
+import com.example.validation.Positive;
+import com.example.validation.Validated;
 import com.example.account.Account;
+import com.example.account.ShardRebalancer;
+import com.example.account.Striping;
 import kalix.javasdk.action.Action;
 import kalix.javasdk.client.ComponentClient;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,36 +25,68 @@ public class Liquidity extends Action {
 
     private final ComponentClient client;
 
+    private final ShardRebalancer rebalancer;
+
     public Liquidity(ComponentClient client) {
         this.client = client;
+        this.rebalancer = new ShardRebalancer(client);
     }
 
     @PostMapping("/verify")
     public Effect<LiquidityResult> verify(@RequestBody Verify.Funds request) {
-        return Validator
-            .validate(
-                Validator.isLtEqZero(request.amount, "Amount must be greater than 0")
-            )
+        return effects().asyncEffect(Validator
+            .start()
+            .violations(VerifyFundsValidator.validate(request))
             .resolve(
                 //TODO: Implement alternative to entityExists method in the Validator class
                 //TODO: Would like to make a way to validate against various call results
                 Validator.entityExists(
                     client
-                        .forEventSourcedEntity(request.account)
+                        .forEventSourcedEntity(Striping.shardFor(request.account, request.txId))
                         .call(Account::verifyFunds)
                         .params(request.amount),
                     "Source Account Funds Not Available"
                 )
             )
-            .handle((result, err) -> switch(result){
+            .handleAsync((result, err) -> switch(result){
                 case SUCCESS -> effects().reply(new LiquidityResult.Approved());
                 case ERROR -> effects().reply(new LiquidityResult.Rejected(err));
-            });
+            }));
+    }
+
+    /**
+     * Checks liquidity and reserves the funds in a single entity call, by placing a hold
+     * keyed by the transaction id on the source account. The hold is captured at clearing,
+     * or released by the compensation. On a striped account the hold is placed on the shard
+     * of the transaction, after moving funds into it when needed, see {@link ShardRebalancer}.
+     */
+    @PostMapping("/reserve")
+    public Effect<LiquidityResult> reserve(@RequestBody Verify.Funds request) {
+        var violations = VerifyFundsValidator.validate(request);
+        if(violations.failed())
+            return effects().reply(new LiquidityResult.Rejected(violations.message()));
+
+        var hold = rebalancer.onShard(request.account, request.txId, request.amount,
+            shardId -> client.forEventSourcedEntity(shardId)
+                .call(Account::placeHold)
+                .params(request.txId, request.amount)
+                .execute(),
+            Account.HoldResult.HoldFailed.class::isInstance);
+
+        return effects().asyncReply(hold.thenApply(result -> switch(result){
+            case Account.HoldResult.HoldSucceed __ -> new LiquidityResult.Approved();
+            case Account.HoldResult.HoldFailed error -> new LiquidityResult.Rejected(error.errorMsg());
+        }));
     }
 
     public sealed interface Verify {
 
-        record Funds(String txId, String account, int amount) implements Verify {}
+        @Validated
+        record Funds(
+            String txId,
+            String account,
+            @Positive(code = "AMOUNT_NOT_POSITIVE", message = "Amount must be greater than 0") int amount
+        ) implements Verify {}
 
     }
 
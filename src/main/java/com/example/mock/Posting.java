@@ -1,6 +1,10 @@
 package com.example.mock;
 
 import com.example.account.Account;
+import com.example.account.ShardRebalancer;
+import com.example.account.Striping;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import kalix.javasdk.action.Action;
 import kalix.javasdk.client.ComponentClient;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,39 +28,50 @@ public class Posting extends Action {
 
     private final ComponentClient client;
 
+    private final ShardRebalancer rebalancer;
+
     public Posting(ComponentClient client) {
         this.client = client;
+        this.rebalancer = new ShardRebalancer(client);
     }
 
     @PostMapping("/post")
     public Effect<PostResult> post(@RequestBody Post.Funds request) {
 
-        var withdraw = client.forEventSourcedEntity(request.account)
-            .call(Account::withdraw)
-            .params(request.amount)
-            .execute()
-            .toCompletableFuture().join();
+        var withdraw = rebalancer.onShard(request.account, request.txId, request.amount,
+            shardId -> client.forEventSourcedEntity(shardId)
+                .call(Account::withdraw)
+                .params(request.txId, request.amount)
+                .execute(),
+            WithdrawFailed.class::isInstance);
 
-        return switch(withdraw){
-            case WithdrawSucceed __ -> effects().reply(new PostResult.Approved());
-            case WithdrawFailed error -> effects().reply(new PostResult.Rejected(error.errorMsg()));
-        };
+        return effects().asyncReply(withdraw.thenApply(result -> switch(result){
+            case WithdrawSucceed __ -> new PostResult.Approved();
+            case WithdrawFailed error -> new PostResult.Rejected(error.errorMsg());
+        }));
 
     }
 
+    /**
+     * Gives back what the transaction took from the source account: the account releases
+     * the hold when there still is one, or refunds the debit it recorded for the withdrawal
+     * or the captured hold. Rejected when the account has nothing on record for the
+     * transaction. See {@link Account#reverse}. Moves between the shards of a striped account
+     * left pending are recovered first, see {@link ShardRebalancer#recover}.
+     */
     @PostMapping("/reversal")
     public Effect<PostResult> reversal(@RequestBody Post.Reversal request) {
 
-        var reversal = client.forEventSourcedEntity(request.account)
-            .call(Account::deposit)
-            .params(request.amount)
-            .execute()
-            .toCompletableFuture().join();
+        var reverse = rebalancer.recover(request.account).thenCompose(__ ->
+            client.forEventSourcedEntity(Striping.shardFor(request.account, request.txId))
+                .call(Account::reverse)
+                .params(request.txId)
+                .execute());
 
-        return switch(reversal){
-            case DepositSucceed __ -> effects().reply(new PostResult.Approved());
-            case DepositFailed error -> effects().reply(new PostResult.Rejected(error.errorMsg()));
-        };
+        return effects().asyncReply(reverse.thenApply(result -> switch(result){
+            case DepositSucceed __ -> new PostResult.Approved();
+            case DepositFailed error -> new PostResult.Rejected(error.errorMsg());
+        }));
 
     }
 
@@ -68,6 +83,11 @@ public class Posting extends Action {
 
     }
 
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = PostResult.Rejected.class, name = "post-rejected"),
+        @JsonSubTypes.Type(value = PostResult.Approved.class, name = "post-approved")
+    })
     public sealed interface PostResult  {
 
         record Rejected(String reason) implements PostResult {}
@@ -1,7 +1,16 @@
 package com.example.mock;
 
+import com.example.sanctions.SanctionsList;
+import com.example.sanctions.SanctionsListVersion;
+import com.example.sanctions.ScreeningIndex;
 import com.example.util.Validator;
+import com.example.util.Validator.RuleSet;
+import com.example.validation.NotEmpty;
+import com.example.validation.Validated;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import kalix.javasdk.action.Action;
+import kalix.javasdk.client.ComponentClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -15,29 +24,73 @@ public class Sanction extends Action {
      * Check if the transaction is sanctioned
      * - Check if the source or destination account is sanctioned
      *
+     * Accounts are screened against the in-memory index of the current sanctions list,
+     * see {@link SanctionsList}.
+     *
      */
 
+    private final ComponentClient client;
+
+    public Sanction(ComponentClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Screening rules, only evaluated once the constraints of {@link Check.Accounts} hold, so
+     * they never see a missing account.
+     */
+    private static final RuleSet<Check.Accounts> SCREENING = Validator.<Check.Accounts>rules()
+        .isTrue(request -> SanctionsList.current().contains(request.source), "SOURCE_SANCTIONED", "Source Account is Sanctioned")
+        .isTrue(request -> SanctionsList.current().contains(request.destination), "DESTINATION_SANCTIONED", "Destination Account is Sanctioned")
+        .compile();
+
     @PostMapping("/check")
     public Effect<SanctionResult> check(@RequestBody Check.Accounts request) {
-        return Validator
-            .validate(
-                //TODO: For now, this is just basic validation, but we could implement some random sanctions
-                Validator.isTrue(request.txId.isEmpty(), "Transaction ID is Required"),
-                Validator.isTrue(request.source.isEmpty(), "Source Account is Required"),
-                Validator.isTrue(request.destination.isEmpty(), "Destination Account is Required")
-            )
-            .handle((result, err) -> switch(result){
-                case SUCCESS -> effects().reply(new SanctionResult.Approved());
-                case ERROR -> effects().reply(new SanctionResult.Rejected(err));
-            });
+        SanctionsList.pollIfDue(() -> client.forValueEntity(SanctionsListVersion.ID)
+            .call(SanctionsListVersion::get)
+            .execute());
+        var invalid = CheckAccountsValidator.validate(request);
+        if(invalid.failed())
+            return effects().reply(new SanctionResult.Rejected(invalid.message()));
+        var sanctioned = SCREENING.evaluate(request);
+        if(sanctioned.failed())
+            return effects().reply(new SanctionResult.Rejected(sanctioned.message()));
+        return effects().reply(new SanctionResult.Approved());
+    }
+
+    /**
+     * Requests a reload of the configured sanctions list file by every service instance,
+     * and reloads it on this one. Replies with the version this instance loaded. The new
+     * version replaces the current one once fully indexed; screening carries on against the
+     * old version meanwhile. Other instances reload on one of their next sanction checks,
+     * see {@link SanctionsList}.
+     */
+    @PostMapping("/reload")
+    public Effect<String> reload() {
+        var requested = client.forValueEntity(SanctionsListVersion.ID)
+            .call(SanctionsListVersion::requestReload)
+            .execute();
+        return effects().asyncReply(requested
+            .thenCompose(SanctionsList::catchUp)
+            .thenApply(ScreeningIndex::version));
     }
 
     public sealed interface Check {
 
-        record Accounts(String txId, String source, String destination) implements Check {}
+        @Validated
+        record Accounts(
+            @NotEmpty(code = "TX_ID_REQUIRED", message = "Transaction ID is Required") String txId,
+            @NotEmpty(code = "SOURCE_REQUIRED", message = "Source Account is Required") String source,
+            @NotEmpty(code = "DESTINATION_REQUIRED", message = "Destination Account is Required") String destination
+        ) implements Check {}
 
     }
 
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = SanctionResult.Rejected.class, name = "sanction-rejected"),
+        @JsonSubTypes.Type(value = SanctionResult.Approved.class, name = "sanction-approved")
+    })
     public sealed interface SanctionResult  {
 
         record Rejected(String reason) implements SanctionResult {}
@@ -1,7 +1,14 @@
 package com.example.mock;
 
 import com.example.account.Account;
+import com.example.account.Striping;
+import com.example.account.AccountDirectory;
 import com.example.util.Validator;
+import com.example.validation.NotEmpty;
+import com.example.validation.Positive;
+import com.example.validation.Validated;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import kalix.javasdk.action.Action;
 import kalix.javasdk.client.ComponentClient;
 import org.slf4j.Logger;
@@ -36,36 +43,47 @@ public class Validation extends Action {
 
     @PostMapping("/validate")
     public Effect<ValidationResult> validate(@RequestBody Validate.Transaction request) {
-        log.info("Validating transaction: {}", request);
-        return Validator
-            .validate(
-                Validator.isTrue(request.txId.isEmpty(), "Transaction ID is Required"),
-                Validator.isTrue(request.amount <= 0, "Transaction amount must be greater than 0"),
-                Validator.isTrue(request.source.isEmpty(), "Source Account is Required"),
-                Validator.isTrue(request.destination.isEmpty(), "Destination Account is Required")
-            )
+        log.debug("Validating transaction {}", request.txId());
+        return effects().asyncEffect(Validator
+            .start()
+            .violations(ValidateTransactionValidator.validate(request))
             .resolve(
                 Validator.entityExists(
-                    client.forEventSourcedEntity(request.source).call(Account::get),
+                    AccountDirectory.ACCOUNTS,
+                    Striping.primary(request.source),
+                    () -> client.forEventSourcedEntity(Striping.primary(request.source)).call(Account::get),
                     "Source Account Not Found"
                 ),
                 Validator.entityExists(
-                    client.forEventSourcedEntity(request.destination).call(Account::get),
+                    AccountDirectory.ACCOUNTS,
+                    Striping.primary(request.destination),
+                    () -> client.forEventSourcedEntity(Striping.primary(request.destination)).call(Account::get),
                     "Destination Account Not Found"
                 )
             )
-            .handle((result, err) -> switch(result){
+            .handleAsync((result, err) -> switch(result){
                 case SUCCESS -> effects().reply(new ValidationResult.Approved());
                 case ERROR -> effects().reply(new ValidationResult.Rejected(err));
-            });
+            }));
     }
 
     public sealed interface Validate  {
 
-        record Transaction(String txId, String source, String destination, int amount) implements Validate {}
+        @Validated
+        record Transaction(
+            @NotEmpty(code = "TX_ID_REQUIRED", message = "Transaction ID is Required") String txId,
+            @NotEmpty(code = "SOURCE_REQUIRED", message = "Source Account is Required") String source,
+            @NotEmpty(code = "DESTINATION_REQUIRED", message = "Destination Account is Required") String destination,
+            @Positive(code = "AMOUNT_NOT_POSITIVE", message = "Transaction amount must be greater than 0") int amount
+        ) implements Validate {}
 
     }
 
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = ValidationResult.Rejected.class, name = "validation-rejected"),
+        @JsonSubTypes.Type(value = ValidationResult.Approved.class, name = "validation-approved")
+    })
     public sealed interface ValidationResult  {
 
         record Rejected(String reason) implements ValidationResult {}
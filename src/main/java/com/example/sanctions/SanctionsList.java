@@ -0,0 +1,140 @@
+package com.example.sanctions;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The sanctions list version currently used for screening.
+ *
+ * The list is read from {@code payment-service.sanctions.list-file} by {@link #load()}, which
+ * Main calls before the service takes requests, so the file is never read on an SDK thread.
+ * A reload builds the new index on a dedicated thread and then swaps it in atomically, so
+ * screening never pauses and never sees a partially loaded list.
+ *
+ * Every instance holds its own copy of the list. A reload requested on one instance bumps the
+ * generation kept in {@link SanctionsListVersion}, and every instance reloads once it sees a
+ * newer generation there, which it checks at most once per {@code poll-interval} as sanction
+ * checks come in.
+ */
+public final class SanctionsList {
+
+    private static final Logger log = LoggerFactory.getLogger(SanctionsList.class);
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.sanctions");
+
+    private static final String LIST_FILE = config.getString("list-file");
+
+    private static final long POLL_INTERVAL_NANOS = config.getDuration("poll-interval").toNanos();
+
+    private static final ExecutorService reloads = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "sanctions-list-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final AtomicReference<ScreeningIndex> current = new AtomicReference<>();
+
+    //generation of the fleet-wide reload requests this instance has caught up with
+    private static final AtomicLong generation = new AtomicLong();
+
+    private static final AtomicLong nextPoll = new AtomicLong(System.nanoTime());
+
+    private SanctionsList() {}
+
+    /**
+     * Loads the configured list file, unless a list was loaded already.
+     */
+    public static void load() {
+        if (current.get() == null) current.compareAndSet(null, initial());
+    }
+
+    public static ScreeningIndex current() {
+        var index = current.get();
+        if (index != null) return index;
+
+        //only when the service was started without Main, as the integration tests do
+        log.warn("Sanctions list used before it was loaded at startup");
+        load();
+        return current.get();
+    }
+
+    /**
+     * Loads the configured list file again on the reload thread, and swaps it in.
+     */
+    public static CompletionStage<ScreeningIndex> reload() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (LIST_FILE.isBlank()) return current();
+                return reload(Path.of(LIST_FILE));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, reloads);
+    }
+
+    public static ScreeningIndex reload(Path file) throws Exception {
+        var start = System.nanoTime();
+        var index = ScreeningIndex.load(file, version(file));
+        current.set(index);
+        log.info("Loaded sanctions list {} with {} entries ({} bytes off-heap) in {} ms",
+            index.version(), index.size(), index.offHeapBytes(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    /**
+     * Reloads the list when the requested generation is newer than the one this instance
+     * caught up with, and returns the current list otherwise.
+     */
+    public static CompletionStage<ScreeningIndex> catchUp(long requested) {
+        var seen = generation.get();
+        if (requested <= seen || !generation.compareAndSet(seen, requested))
+            return CompletableFuture.completedFuture(current());
+        log.info("Reloading sanctions list for reload request {}", requested);
+        return reload();
+    }
+
+    /**
+     * Asks for the requested generation, at most once per poll interval, and catches up
+     * with it. Never waits for the answer.
+     */
+    public static void pollIfDue(Supplier<CompletionStage<Long>> requestedGeneration) {
+        var due = nextPoll.get();
+        var now = System.nanoTime();
+        if (now - due < 0 || !nextPoll.compareAndSet(due, now + POLL_INTERVAL_NANOS)) return;
+
+        requestedGeneration.get()
+            .thenCompose(SanctionsList::catchUp)
+            .whenComplete((index, error) -> {
+                if (error != null) log.warn("Could not catch up with sanctions list reloads: {}", error.getMessage());
+            });
+    }
+
+    private static ScreeningIndex initial() {
+        if (LIST_FILE.isBlank()) return ScreeningIndex.EMPTY;
+        try {
+            var file = Path.of(LIST_FILE);
+            return ScreeningIndex.load(file, version(file));
+        } catch (Exception e) {
+            log.error("Could not load sanctions list [{}], screening against an empty list: {}", LIST_FILE, e.getMessage());
+            return ScreeningIndex.EMPTY;
+        }
+    }
+
+    private static String version(Path file) throws Exception {
+        return file.getFileName() + "@" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.example.sanctions;
+
+import kalix.javasdk.annotations.Id;
+import kalix.javasdk.annotations.TypeId;
+import kalix.javasdk.valueentity.ValueEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@Id("id")
+@TypeId("sanctions-list-version")
+@RequestMapping("/sanctions-list-version/{id}")
+public class SanctionsListVersion extends ValueEntity<SanctionsListVersion.State> {
+
+    /**
+     * Fleet-wide trigger of sanctions list reloads, see {@link SanctionsList}.
+     *
+     * Each reload request increments the generation. Service instances compare it with the
+     * generation they last reloaded for, so every instance reloads once per request however
+     * many requests it missed.
+     *
+     */
+
+    public static final String ID = "current";
+
+    @Override
+    public State emptyState() {
+        return new State(0L, 0L);
+    }
+
+    @PostMapping("/request-reload")
+    public Effect<Long> requestReload() {
+        var requested = currentState().next(System.currentTimeMillis());
+        return effects()
+            .updateState(requested)
+            .thenReply(requested.generation());
+    }
+
+    @GetMapping
+    public Effect<Long> get() {
+        return effects().reply(currentState().generation());
+    }
+
+    /**
+     * @param requestedAt epoch milliseconds of the last reload request
+     */
+    public record State(long generation, long requestedAt) {
+
+        public State next(long now) {
+            return new State(generation + 1, now);
+        }
+
+    }
+
+}
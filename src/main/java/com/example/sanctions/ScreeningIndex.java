@@ -0,0 +1,152 @@
+package com.example.sanctions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Immutable, off-heap index of a sanctions list.
+ *
+ * Every entry is normalized (letters and digits only, case folded) and reduced to a 64-bit
+ * hash. The index keeps a Bloom filter of those hashes in front of the sorted hashes
+ * themselves, both in direct buffers, so the heap footprint does not grow with the list.
+ * Most screened names are not listed and are answered by the Bloom filter alone; a filter
+ * hit is confirmed with a binary search over the sorted hashes. Lookups hash the name in
+ * place and allocate nothing.
+ *
+ * Matching is exact on the normalized form. A 64-bit hash collision reports a name as
+ * listed, which for screening errs on the safe side.
+ */
+public final class ScreeningIndex {
+
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASHES = 7;
+
+    public static final ScreeningIndex EMPTY = new ScreeningIndex(new long[0], "empty");
+
+    private final LongBuffer bloom;
+    private final long bloomBits;
+    private final LongBuffer hashes;
+    private final int size;
+    private final String version;
+
+    private ScreeningIndex(long[] sortedHashes, String version) {
+        this.size = sortedHashes.length;
+        this.version = version;
+        this.bloomBits = Math.max(64, (long) size * BITS_PER_ENTRY);
+        this.bloom = directLongs((int) ((bloomBits + 63) / 64));
+        this.hashes = directLongs(size);
+        for (int i = 0; i < size; i++) {
+            hashes.put(i, sortedHashes[i]);
+            addToBloom(sortedHashes[i]);
+        }
+    }
+
+    /**
+     * Builds an index from a list file holding one name or identifier per line.
+     */
+    public static ScreeningIndex load(Path file, String version) throws IOException {
+        var entries = new long[1 << 16];
+        var count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (count == entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+                entries[count++] = hash(line);
+            }
+        }
+        return of(Arrays.copyOf(entries, count), version);
+    }
+
+    public static ScreeningIndex of(long[] hashes, String version) {
+        var sorted = hashes.clone();
+        Arrays.sort(sorted);
+        var distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[distinct++] = sorted[i];
+        }
+        return new ScreeningIndex(Arrays.copyOf(sorted, distinct), version);
+    }
+
+    public boolean contains(CharSequence name) {
+        if (size == 0) return false;
+        var hash = hash(name);
+        return mightContain(hash) && binarySearch(hash);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public long offHeapBytes() {
+        return (long) (bloom.capacity() + hashes.capacity()) * Long.BYTES;
+    }
+
+    /**
+     * 64-bit FNV-1a over the lower-cased letters and digits of the name, with a final
+     * avalanche so that both halves can feed the Bloom filter.
+     */
+    public static long hash(CharSequence name) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            var c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c)) continue;
+            hash ^= Character.toLowerCase(c);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void addToBloom(long hash) {
+        var h1 = (int) hash;
+        var h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            var bit = Math.floorMod(h1 + (long) i * h2, bloomBits);
+            var word = (int) (bit >>> 6);
+            bloom.put(word, bloom.get(word) | (1L << bit));
+        }
+    }
+
+    private boolean mightContain(long hash) {
+        var h1 = (int) hash;
+        var h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            var bit = Math.floorMod(h1 + (long) i * h2, bloomBits);
+            if ((bloom.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private boolean binarySearch(long hash) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var value = hashes.get(mid);
+            if (value < hash) low = mid + 1;
+            else if (value > hash) high = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    private static LongBuffer directLongs(int count) {
+        return ByteBuffer.allocateDirect(count * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+}
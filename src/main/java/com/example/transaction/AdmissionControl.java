@@ -0,0 +1,201 @@
+package com.example.transaction;
+
+import com.example.util.TokenBucket;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control in front of workflow creation, so a single runaway client cannot start
+ * thousands of workflows contending on one source account.
+ *
+ * A payment is admitted when this instance has fewer than max-in-flight workflows starting or
+ * running, and the token bucket of its source account has a token left. A rejected payment
+ * costs no token, and no workflow state is persisted for it.
+ *
+ * An admitted payment is starting until its first step runs, which the runtime only does once
+ * the initial state is persisted. A command redelivered while starting is not charged again,
+ * and a payment that has not started within start-timeout, because persisting it failed, gets
+ * its token back. Started workflows are in flight until they reach a terminal status; those
+ * finishing on another instance are dropped once older than the workflow timeout. Limits apply
+ * per service instance.
+ */
+public final class AdmissionControl {
+
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public static final AdmissionControl PAYMENTS = new AdmissionControl(
+        ConfigFactory.load().getConfig("payment-service.admission"),
+        StepTimeouts.workflow(),
+        System::nanoTime
+    );
+
+    private final boolean enabled;
+    private final double rate;
+    private final double burst;
+    private final int maxSources;
+    private final int maxInFlight;
+    private final long startTimeoutNanos;
+    private final long inFlightExpiryNanos;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Starting> starting = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Long> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong bucketsPrunedAt;
+    private final AtomicLong startingPrunedAt;
+    private final AtomicLong inFlightPrunedAt;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shedSourceRate = new LongAdder();
+    private final LongAdder shedOverload = new LongAdder();
+    private final LongAdder notStarted = new LongAdder();
+
+    /**
+     * @param config the {@code payment-service.admission} section
+     * @param inFlightExpiry age after which a workflow is assumed to have finished elsewhere
+     * @param nanoClock monotonic time in nanoseconds, {@link System#nanoTime()} outside of tests
+     */
+    AdmissionControl(Config config, Duration inFlightExpiry, LongSupplier nanoClock) {
+        this.enabled = config.getBoolean("enabled");
+        this.rate = config.getDouble("per-source.rate");
+        this.burst = config.getDouble("per-source.burst");
+        this.maxSources = config.getInt("per-source.max-sources");
+        this.maxInFlight = config.getInt("max-in-flight");
+        this.startTimeoutNanos = config.getDuration("start-timeout").toNanos();
+        this.inFlightExpiryNanos = inFlightExpiry.toNanos();
+        this.nanoClock = nanoClock;
+
+        var now = nanoClock.getAsLong();
+        this.bucketsPrunedAt = new AtomicLong(now);
+        this.startingPrunedAt = new AtomicLong(now);
+        this.inFlightPrunedAt = new AtomicLong(now);
+    }
+
+    /**
+     * Called by the command starting the workflow, before its initial state is persisted.
+     */
+    public Admission admit(String txId, String source) {
+        if (!enabled) return Admission.ADMITTED;
+
+        var now = nanoClock.getAsLong();
+        pruneStarting(now);
+        if (starting.containsKey(txId)) return Admission.ADMITTED;
+
+        if (load() >= maxInFlight && (!pruneInFlight(now) || load() >= maxInFlight)) {
+            shedOverload.increment();
+            return Admission.OVERLOADED;
+        }
+
+        if (buckets.size() >= maxSources) pruneBuckets(now);
+        //acquired under the lock of the map entry, so the bucket cannot be pruned in between
+        var acquired = new boolean[1];
+        buckets.compute(source, (__, bucket) -> {
+            var current = bucket == null ? new TokenBucket(rate, burst, nanoClock) : bucket;
+            acquired[0] = current.tryAcquire();
+            return current;
+        });
+        if (!acquired[0]) {
+            shedSourceRate.increment();
+            return Admission.SOURCE_RATE_EXCEEDED;
+        }
+
+        starting.put(txId, new Starting(source, now));
+        admitted.increment();
+        return Admission.ADMITTED;
+    }
+
+    /**
+     * Called as a step of the workflow runs: the first one moves an admitted payment from
+     * starting to in flight.
+     */
+    public void started(String txId) {
+        if (starting.remove(txId) != null) inFlight.put(txId, nanoClock.getAsLong());
+    }
+
+    /**
+     * Called once the workflow reached a terminal status.
+     */
+    public void release(String txId) {
+        inFlight.remove(txId);
+    }
+
+    public Stats stats() {
+        return new Stats(
+            admitted.sum(),
+            shedSourceRate.sum(),
+            shedOverload.sum(),
+            notStarted.sum(),
+            starting.size(),
+            inFlight.size(),
+            buckets.size()
+        );
+    }
+
+    private int load() {
+        return starting.size() + inFlight.size();
+    }
+
+    /**
+     * Gives back the tokens of the payments that did not start within the start timeout, at
+     * most once per prune interval.
+     */
+    private void pruneStarting(long now) {
+        if (!due(startingPrunedAt, now)) return;
+        for (var entry : starting.entrySet()) {
+            var admission = entry.getValue();
+            if (now - admission.admittedAt() > startTimeoutNanos && starting.remove(entry.getKey(), admission)) {
+                //a dropped bucket was full, there is nothing to give back to
+                buckets.computeIfPresent(admission.source(), (__, bucket) -> {
+                    bucket.refund();
+                    return bucket;
+                });
+                notStarted.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops the workflows older than the workflow timeout, at most once per prune interval.
+     *
+     * @return whether anything was pruned
+     */
+    private boolean pruneInFlight(long now) {
+        if (!due(inFlightPrunedAt, now)) return false;
+        return inFlight.values().removeIf(startedAt -> now - startedAt > inFlightExpiryNanos);
+    }
+
+    /**
+     * Drops the buckets that refilled completely, at most once per prune interval. Each one is
+     * checked and removed under the lock of its map entry, so no concurrent acquire is lost.
+     */
+    private void pruneBuckets(long now) {
+        if (!due(bucketsPrunedAt, now)) return;
+        for (var source : buckets.keySet())
+            buckets.computeIfPresent(source, (__, bucket) -> bucket.isFull() ? null : bucket);
+    }
+
+    private static boolean due(AtomicLong prunedAt, long now) {
+        var last = prunedAt.get();
+        return now - last >= PRUNE_INTERVAL_NANOS && prunedAt.compareAndSet(last, now);
+    }
+
+    private record Starting(String source, long admittedAt) {}
+
+    public enum Admission {
+        ADMITTED, SOURCE_RATE_EXCEEDED, OVERLOADED
+    }
+
+    public record Stats(long admitted, long shedSourceRate, long shedOverload, long notStarted,
+                        int starting, int inFlight, int trackedSources) {}
+
+}
@@ -0,0 +1,59 @@
+package com.example.transaction;
+
+import com.example.metrics.TransactionMetrics;
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedged calls for read-only steps: when the first call has not answered once the step's
+ * latency quantile has passed, the same call is made a second time and the first answer
+ * wins. The quantile bounds the extra load, about 5% more calls at p95.
+ *
+ * Only for calls without side effects. Steps without enough samples are not hedged.
+ */
+public final class Hedging {
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.workflow.hedging");
+
+    private static final boolean ENABLED = config.getBoolean("enabled");
+    private static final double QUANTILE = config.getDouble("quantile");
+    private static final long FLOOR_MILLIS = config.getDuration("floor").toMillis();
+    private static final long MIN_SAMPLES = config.getLong("min-samples");
+
+    private Hedging() {}
+
+    public static <T> CompletionStage<T> hedged(StepId step, Supplier<CompletionStage<T>> call) {
+        if (!ENABLED || TransactionMetrics.stepSamples(step) < MIN_SAMPLES) return call.get();
+        return hedged(step, Math.max(FLOOR_MILLIS, TransactionMetrics.stepLatency(step, QUANTILE)), call);
+    }
+
+    /**
+     * Makes the call, and once more when it has not answered after the delay.
+     */
+    static <T> CompletionStage<T> hedged(StepId step, long delay, Supplier<CompletionStage<T>> call) {
+        var result = new CompletableFuture<T>();
+        var outstanding = new AtomicInteger(1);
+        BiConsumer<T, Throwable> settle = (value, error) -> {
+            if (error == null) result.complete(value);
+            else if (outstanding.decrementAndGet() == 0) result.completeExceptionally(error);
+        };
+
+        call.get().whenComplete(settle);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) return;
+            outstanding.incrementAndGet();
+            TransactionMetrics.hedge(step);
+            call.get().whenComplete(settle);
+        });
+        return result;
+    }
+
+}
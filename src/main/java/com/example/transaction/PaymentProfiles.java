@@ -0,0 +1,172 @@
+package com.example.transaction;
+
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.*;
+
+import static com.example.transaction.TransactionWorkflow.State.StepId.*;
+
+/**
+ * Payment profiles from {@code payment-service.profiles}: the steps a payment goes through
+ * and how each step recovers from failures.
+ *
+ * The workflow engine takes recovery strategies per registered step, so every profile gets
+ * its own copy of its steps, named {@code <profile>.<step>}. The default profile keeps the
+ * plain step names, which are also the names workflows started before profiles existed are
+ * parked on.
+ */
+public final class PaymentProfiles {
+
+    public static final String FAILOVER_HANDLER_STEP = FAILOVER_HANDLER.stepName();
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.profiles");
+
+    private static final String DEFAULT_NAME = config.getString("default-profile");
+
+    private static final Map<String, Profile> PROFILES = load();
+
+    private static final Profile DEFAULT = PROFILES.get(DEFAULT_NAME);
+
+    static {
+        if (DEFAULT == null)
+            throw new IllegalArgumentException("Default payment profile [" + DEFAULT_NAME + "] is not defined");
+    }
+
+    private PaymentProfiles() {}
+
+    public static Collection<Profile> all() {
+        return PROFILES.values();
+    }
+
+    public static Profile defaultProfile() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return the named profile, the default profile for null, or null when there is no such profile
+     */
+    public static Profile get(String name) {
+        return name == null ? DEFAULT : PROFILES.get(name);
+    }
+
+    /**
+     * @param failoverTo {@link StepId#COMPENSATE}, {@link StepId#FAILOVER_HANDLER}, or
+     *                   {@link StepId#RECONCILE} for the clearing
+     */
+    public record Recovery(int maxRetries, StepId failoverTo) {}
+
+    public record Profile(String name, List<StepId> steps, Map<StepId, Recovery> recovery) {
+
+        public boolean isDefault() {
+            return DEFAULT_NAME.equals(name);
+        }
+
+        public StepId first() {
+            return steps.get(0);
+        }
+
+        /**
+         * The step following the completed one, or null when the payment is complete.
+         */
+        public StepId next(StepId completed) {
+            var index = steps.indexOf(completed);
+            if (index >= 0) return index + 1 < steps.size() ? steps.get(index + 1) : null;
+
+            //steps of workflows started before profiles, continued along the former path
+            return switch(completed) {
+                case SCREENING, SANCTION_CHECK -> RESERVE_FUNDS;
+                case VALIDATE_TRANSACTION -> SANCTION_CHECK;
+                case LIQUIDITY_CHECK -> POSTING_TRANSACTION;
+                case RESERVE_FUNDS, POSTING_TRANSACTION -> TRANSACTION_CLEARING;
+                default -> null;
+            };
+        }
+
+        public String stepName(StepId step) {
+            if (isDefault() || step == FAILOVER_HANDLER) return step.stepName();
+            return name + "." + step.stepName();
+        }
+
+        /**
+         * Steps registered for this profile: its pipeline, the compensation and the
+         * reconciliation of the clearing.
+         */
+        public List<StepId> registeredSteps() {
+            var registered = new ArrayList<>(steps);
+            registered.add(COMPENSATE);
+            registered.add(RECONCILE);
+            return registered;
+        }
+
+        /**
+         * @return the configured recovery of the step, or null for the workflow default
+         */
+        public Recovery recovery(StepId step) {
+            return recovery.get(step);
+        }
+
+    }
+
+    private static Map<String, Profile> load() {
+        var definitions = config.getConfig("definitions");
+        var profiles = new LinkedHashMap<String, Profile>();
+        for (String name : definitions.root().keySet()) {
+            var definition = definitions.getConfig(name);
+
+            var steps = new ArrayList<StepId>();
+            for (String step : definition.getStringList("steps")) steps.add(StepId.fromStepName(step));
+
+            var recovery = new EnumMap<StepId, Recovery>(StepId.class);
+            if (definition.hasPath("recovery")) {
+                var strategies = definition.getConfig("recovery");
+                for (String step : strategies.root().keySet()) {
+                    var strategy = strategies.getConfig(step);
+                    recovery.put(StepId.fromStepName(step), new Recovery(
+                        strategy.getInt("max-retries"),
+                        StepId.fromStepName(strategy.getString("failover-to"))
+                    ));
+                }
+            }
+
+            profiles.put(name, validated(new Profile(name, List.copyOf(steps), Map.copyOf(recovery))));
+        }
+        return Collections.unmodifiableMap(profiles);
+    }
+
+    private static Profile validated(Profile profile) {
+        var steps = profile.steps();
+        if (steps.isEmpty() || steps.get(steps.size() - 1) != TRANSACTION_CLEARING)
+            throw invalid(profile, "must end with " + TRANSACTION_CLEARING.stepName());
+        if (!steps.contains(RESERVE_FUNDS) && !steps.contains(POSTING_TRANSACTION))
+            throw invalid(profile, "must take the funds with " + RESERVE_FUNDS.stepName() + " or " + POSTING_TRANSACTION.stepName());
+        if (steps.contains(COMPENSATE) || steps.contains(FAILOVER_HANDLER) || steps.contains(RECONCILE))
+            throw invalid(profile, "lists a recovery step as a payment step");
+        if (new HashSet<>(steps).size() != steps.size())
+            throw invalid(profile, "lists a step twice");
+        for (var strategy : profile.recovery().entrySet()) {
+            var failoverTo = strategy.getValue().failoverTo();
+            if (failoverTo != COMPENSATE && failoverTo != FAILOVER_HANDLER && failoverTo != RECONCILE)
+                throw invalid(profile, "can only fail over to " + COMPENSATE.stepName() + ", " + RECONCILE.stepName()
+                    + " and " + FAILOVER_HANDLER.stepName());
+            if (!profile.registeredSteps().contains(strategy.getKey()))
+                throw invalid(profile, "has a recovery for " + strategy.getKey().stepName() + ", which it does not run");
+            //a clearing that failed without an answer may have credited the destination already
+            if (strategy.getKey() == TRANSACTION_CLEARING && failoverTo == COMPENSATE)
+                throw invalid(profile, "cannot fail over from " + TRANSACTION_CLEARING.stepName() + " to " + COMPENSATE.stepName()
+                    + ", the funds may have been credited already");
+            if (failoverTo == RECONCILE && strategy.getKey() != TRANSACTION_CLEARING)
+                throw invalid(profile, "can only fail over to " + RECONCILE.stepName() + " from " + TRANSACTION_CLEARING.stepName());
+            //reconciliation that failed without an answer may have refused the deposit or not
+            if (strategy.getKey() == RECONCILE && failoverTo != FAILOVER_HANDLER)
+                throw invalid(profile, "can only fail over from " + RECONCILE.stepName() + " to " + FAILOVER_HANDLER.stepName());
+        }
+        return profile;
+    }
+
+    private static IllegalArgumentException invalid(Profile profile, String problem) {
+        return new IllegalArgumentException("Payment profile [" + profile.name() + "] " + problem);
+    }
+
+}
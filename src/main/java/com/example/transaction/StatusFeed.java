@@ -0,0 +1,51 @@
+package com.example.transaction;
+
+import com.example.transaction.TransactionWorkflow.State;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process feed of the workflow state transitions, for the transaction status streams.
+ *
+ * States are published to the streams subscribed on this service instance only. A state
+ * is published as the step following it starts, once the runtime persisted it. Terminal
+ * states have no step following them and are published as the workflow hands them to the
+ * runtime, before they are persisted, so subscribers confirm them by reading the workflow.
+ *
+ * Nothing is kept for transactions nobody follows, and a slow subscriber misses states
+ * rather than holding up the workflow, so subscribers read the workflow to catch up on a
+ * gap in the states they were sent.
+ */
+public final class StatusFeed {
+
+    private static final ConcurrentHashMap<String, Feed> feeds = new ConcurrentHashMap<>();
+
+    private StatusFeed() {}
+
+    public static void publish(State state) {
+        var feed = feeds.get(state.txId());
+        if (feed != null) feed.sink.tryEmitNext(state);
+    }
+
+    public static Flux<State> updates(String txId) {
+        return Flux.defer(() -> feeds.compute(txId, (id, feed) -> {
+                var subscribed = feed == null ? new Feed() : feed;
+                subscribed.subscribers++;
+                return subscribed;
+            }).sink.asFlux()
+            .doFinally(__ -> feeds.computeIfPresent(txId, (id, feed) -> --feed.subscribers == 0 ? null : feed)));
+    }
+
+    /**
+     * Subscribers are only counted within a compute on the map, which serializes them per txId.
+     */
+    private static final class Feed {
+
+        private final Sinks.Many<State> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.example.transaction;
+
+import com.example.metrics.TransactionMetrics;
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Step timeouts derived from the latencies observed by {@link TransactionMetrics}: a multiple
+ * of the p99 latency of the step, kept between a floor and a ceiling. Until a step has enough
+ * samples it gets the default step timeout.
+ *
+ * Only the steps listed in {@code step-timeouts.adaptive-steps} get adaptive timeouts, by
+ * default the read-only checks. Steps that move funds keep the default step timeout: timing
+ * them out early only turns slow writes into retries and compensations of unknown outcome.
+ *
+ * Timeouts are read whenever the workflow definition is built, so they follow the latency
+ * of each dependency as it changes.
+ */
+public final class StepTimeouts {
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.workflow");
+
+    private static final Duration WORKFLOW_TIMEOUT = config.getDuration("timeout");
+    private static final Duration DEFAULT_STEP_TIMEOUT = config.getDuration("default-step-timeout");
+    private static final double MULTIPLIER = config.getDouble("step-timeouts.p99-multiplier");
+    private static final long FLOOR_MILLIS = config.getDuration("step-timeouts.floor").toMillis();
+    private static final long CEILING_MILLIS = config.getDuration("step-timeouts.ceiling").toMillis();
+    private static final long MIN_SAMPLES = config.getLong("step-timeouts.min-samples");
+    private static final Set<StepId> ADAPTIVE_STEPS = config.getStringList("step-timeouts.adaptive-steps").stream()
+        .map(StepId::fromStepName)
+        .collect(Collectors.toUnmodifiableSet());
+
+    private StepTimeouts() {}
+
+    public static Duration workflow() {
+        return WORKFLOW_TIMEOUT;
+    }
+
+    public static Duration defaultStep() {
+        return DEFAULT_STEP_TIMEOUT;
+    }
+
+    public static Duration of(StepId step) {
+        if (!ADAPTIVE_STEPS.contains(step)) return DEFAULT_STEP_TIMEOUT;
+        return of(TransactionMetrics.stepSamples(step), TransactionMetrics.stepLatency(step, 0.99));
+    }
+
+    /**
+     * The timeout of a step with the given number of samples and p99 latency in milliseconds.
+     */
+    static Duration of(long samples, long p99Millis) {
+        if (samples < MIN_SAMPLES) return DEFAULT_STEP_TIMEOUT;
+        var adaptive = (long) Math.ceil(p99Millis * MULTIPLIER);
+        return Duration.ofMillis(Math.max(FLOOR_MILLIS, Math.min(CEILING_MILLIS, adaptive)));
+    }
+
+}
@@ -10,4 +10,35 @@ public interface Transaction {
 
     }
 
+    interface Batch extends Transaction {
+
+        /**
+         * @param payments JSONL content, one {@link Payment} object per line, bounded by
+         *                 {@code payment-service.batch.max-lines} and {@code max-length}
+         */
+        record Submission(String payments) implements Batch {}
+
+        /**
+         * @param profile payment profile, the default one when absent
+         */
+        record Payment(String txId, String from, String to, int amount, String profile) implements Batch {}
+
+        /**
+         * Outcome of starting the workflow for one line of a submission. The status is the
+         * workflow status, or REJECTED when the line could not be submitted at all.
+         */
+        record Receipt(long line, String txId, String status, String message) implements Batch {}
+
+    }
+
+    interface Tracking extends Transaction {
+
+        /**
+         * @param step the step whose outcome led to this status, null before the first step
+         * @param terminal whether this is the last update of the transaction
+         */
+        record StatusUpdate(String txId, String status, String step, boolean terminal) implements Tracking {}
+
+    }
+
 }
@@ -0,0 +1,112 @@
+package com.example.transaction;
+
+import com.example.transaction.Transaction.Batch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.grpc.Status;
+import kalix.javasdk.JsonSupport;
+import kalix.javasdk.action.Action;
+import kalix.javasdk.client.ComponentClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.example.transaction.Transaction.Response.*;
+
+@RequestMapping("/transactions")
+public class TransactionBatch extends Action {
+
+    /**
+     * Batch ingestion of payments, for end-of-day files.
+     *
+     * This is bounded-size batching: the submission arrives as a single JSON document and is
+     * held in memory whole, since request bodies are not streamed into actions. Submissions
+     * over {@code payment-service.batch.max-lines} lines or {@code max-length} characters are
+     * rejected with INVALID_ARGUMENT before any payment is started; larger files are split
+     * into several submissions.
+     *
+     * Each payment is handed to its own TransactionWorkflow, with at most
+     * {@code payment-service.batch.concurrency} workflow starts in flight. A receipt is
+     * streamed back for every line as soon as its workflow replies, so receipts are not
+     * necessarily in line order.
+     *
+     * Resubmitting a payment with a known txId yields a DUPLICATE receipt, exactly like
+     * calling the process endpoint of the workflow directly.
+     *
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionBatch.class);
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.batch");
+
+    private static final int CONCURRENCY = config.getInt("concurrency");
+
+    private static final int MAX_LINES = config.getInt("max-lines");
+
+    private static final int MAX_LENGTH = config.getInt("max-length");
+
+    private static final ObjectMapper mapper = JsonSupport.getObjectMapper();
+
+    private final ComponentClient client;
+
+    public TransactionBatch(ComponentClient client) {
+        this.client = client;
+    }
+
+    @PostMapping("/batch")
+    public Flux<Effect<Batch.Receipt>> submit(@RequestBody Batch.Submission submission) {
+        var payments = submission.payments() == null ? "" : submission.payments();
+        if (payments.length() > MAX_LENGTH)
+            return Flux.just(effects().error("Batch over " + MAX_LENGTH + " characters, split it into smaller batches", Status.Code.INVALID_ARGUMENT));
+        if (lines(payments) > MAX_LINES)
+            return Flux.just(effects().error("Batch over " + MAX_LINES + " lines, split it into smaller batches", Status.Code.INVALID_ARGUMENT));
+
+        return Flux.fromStream(payments::lines)
+            .index()
+            .filter(line -> !line.getT2().isBlank())
+            .flatMap(line -> start(line.getT1() + 1, line.getT2()), CONCURRENCY)
+            .map(receipt -> effects().reply(receipt));
+    }
+
+    private static int lines(String payments) {
+        var lines = 1;
+        for (int i = 0; i < payments.length(); i++) if (payments.charAt(i) == '\n') lines++;
+        return lines;
+    }
+
+    private Mono<Batch.Receipt> start(long lineNumber, String line) {
+        Batch.Payment payment;
+        try {
+            payment = mapper.readValue(line, Batch.Payment.class);
+        } catch (Exception e) {
+            log.warn("Unreadable payment on line {}: {}", lineNumber, e.getMessage());
+            return Mono.just(new Batch.Receipt(lineNumber, "", "REJECTED", "Unreadable payment"));
+        }
+        if (payment.txId() == null || payment.txId().isBlank())
+            return Mono.just(new Batch.Receipt(lineNumber, "", "REJECTED", "Transaction ID is Required"));
+
+        var started = payment.profile() == null
+            ? client.forWorkflow(payment.txId())
+                .call(TransactionWorkflow::process)
+                .params(payment.from(), payment.to(), payment.amount())
+                .execute()
+            : client.forWorkflow(payment.txId())
+                .call(TransactionWorkflow::processWithProfile)
+                .params(payment.from(), payment.to(), payment.amount(), payment.profile())
+                .execute();
+
+        return Mono.fromCompletionStage(started)
+            .map(response -> switch(response) {
+                case Received received -> new Batch.Receipt(lineNumber, received.txId(), received.status(), "");
+                case Processing processing -> new Batch.Receipt(lineNumber, processing.txId(), processing.status(), processing.message());
+                default -> new Batch.Receipt(lineNumber, payment.txId(), "REJECTED", "Unexpected response");
+            })
+            .onErrorResume(e -> Mono.just(new Batch.Receipt(lineNumber, payment.txId(), "REJECTED", e.getMessage())));
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.example.transaction;
+
+import com.example.transaction.Transaction.Tracking;
+import com.example.transaction.TransactionWorkflow.State;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import kalix.javasdk.action.Action;
+import kalix.javasdk.client.ComponentClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RequestMapping("/transaction-status")
+public class TransactionStatusStream extends Action {
+
+    /**
+     * Streams the status of a transaction, instead of polling its workflow, served as
+     * server-sent events to HTTP clients accepting text/event-stream.
+     *
+     * The current status is read from the workflow and sent first, then every transition as
+     * the workflow makes it, and the stream completes after a terminal status. Transitions
+     * come from the StatusFeed of this instance. The workflow is read again only when the
+     * feed cannot be relied on: to confirm a terminal status, which the feed gets before it
+     * is persisted; after a gap in the states the feed delivered; and when the feed has been
+     * quiet for a poll interval, as it is for workflows running on another instance. Each
+     * transition is sent once and in order, as the number of steps in the workflow history
+     * only ever grows.
+     *
+     */
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.status-stream");
+
+    private static final Duration POLL_INTERVAL = config.getDuration("poll-interval");
+
+    private static final Duration MAX_DURATION = config.getDuration("max-duration");
+
+    private final ComponentClient client;
+
+    public TransactionStatusStream(ComponentClient client) {
+        this.client = client;
+    }
+
+    @GetMapping("/{txId}")
+    public Flux<Effect<Tracking.StatusUpdate>> stream(@PathVariable String txId) {
+        return Flux.defer(() -> {
+                var seen = new AtomicInteger(-1);
+                var lastHeard = new AtomicLong(System.nanoTime());
+
+                var fed = StatusFeed.updates(txId)
+                    .doOnNext(__ -> lastHeard.set(System.nanoTime()))
+                    .concatMap(state -> {
+                        var gap = state.history().steps().size() > seen.get() + 1;
+                        return state.status().isTerminal() || gap ? read(txId) : Mono.just(state);
+                    });
+                var polled = Flux.interval(POLL_INTERVAL, POLL_INTERVAL)
+                    .filter(__ -> System.nanoTime() - lastHeard.get() >= POLL_INTERVAL.toNanos())
+                    .concatMap(__ -> read(txId));
+
+                return Flux.merge(fed, read(txId), polled)
+                    .filter(state -> {
+                        var steps = state.history().steps().size();
+                        if (steps <= seen.get()) return false;
+                        seen.set(steps);
+                        return true;
+                    });
+            })
+            .takeUntil(state -> state.status().isTerminal())
+            .take(MAX_DURATION)
+            .map(state -> effects().reply(update(state)));
+    }
+
+    /**
+     * The persisted state of the workflow, or nothing when it has not started yet or could
+     * not be reached this time.
+     */
+    private Mono<State> read(String txId) {
+        return Mono.fromCompletionStage(() -> client.forWorkflow(txId)
+                .call(TransactionWorkflow::getTransaction)
+                .execute())
+            .onErrorResume(e -> Mono.empty());
+    }
+
+    private static Tracking.StatusUpdate update(State state) {
+        var last = state.history().last();
+        return new Tracking.StatusUpdate(
+            state.txId(),
+            state.status().name(),
+            last == null ? null : last.step().name(),
+            state.status().isTerminal()
+        );
+    }
+
+}
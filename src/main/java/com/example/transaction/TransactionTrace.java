@@ -0,0 +1,119 @@
+package com.example.transaction;
+
+import com.example.transaction.TransactionWorkflow.State;
+import com.example.transaction.TransactionWorkflow.State.Outcome;
+import com.example.transaction.TransactionWorkflow.State.StepEntry;
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Step level logging of the transaction workflows, on the {@code payment-service.trace} logger.
+ *
+ * A transaction is either traced from start to end or not at all: the decision is taken from
+ * a hash of the txId against {@code payment-service.tracing.sample-rate}. Rejected and failed
+ * steps, compensations and failovers are always logged, at WARN. Unsampled transactions are
+ * still logged at DEBUG, so enabling DEBUG on the logger (as logback-dev-mode.xml does) traces
+ * every transaction. The txId and step are put in the MDC rather than in the message, and
+ * nothing is formatted unless the line is actually written.
+ */
+public final class TransactionTrace {
+
+    private static final Logger log = LoggerFactory.getLogger("payment-service.trace");
+
+    static final String TX_ID = "txId";
+    static final String STEP = "step";
+
+    private static final int BUCKETS = 10_000;
+
+    private static final int SAMPLED_BUCKETS =
+        (int) Math.round(ConfigFactory.load().getDouble("payment-service.tracing.sample-rate") * BUCKETS);
+
+    private TransactionTrace() {}
+
+    /**
+     * Logs the call of a step, retries included.
+     */
+    public static void attempt(StepId step, String txId) {
+        if (sampled(txId)) {
+            try (var __ = mdc(txId, step)) {
+                log.info("step started");
+            }
+        } else if (log.isDebugEnabled()) {
+            try (var __ = mdc(txId, step)) {
+                log.debug("step started");
+            }
+        }
+    }
+
+    /**
+     * Logs the step that was just appended to the history of the given state.
+     *
+     * @param reason why the step was rejected, null when it was approved
+     */
+    public static void transition(State state, String reason) {
+        StepEntry last = state.history().last();
+        if (last == null) return;
+
+        if (alwaysLogged(last)) {
+            try (var __ = mdc(state.txId(), last.step())) {
+                log.warn("step {} with status {} after {} ms: {}", last.outcome(), state.status(), last.at(), reason);
+            }
+        } else if (sampled(state.txId())) {
+            try (var __ = mdc(state.txId(), last.step())) {
+                log.info("step {} with status {} after {} ms", last.outcome(), state.status(), last.at());
+            }
+        } else if (log.isDebugEnabled()) {
+            try (var __ = mdc(state.txId(), last.step())) {
+                log.debug("step {} with status {} after {} ms", last.outcome(), state.status(), last.at());
+            }
+        }
+    }
+
+    /**
+     * Whether the transaction is traced at INFO. Stable for a given txId, so every step of a
+     * transaction, on any service instance, gets the same answer.
+     */
+    public static boolean sampled(String txId) {
+        if (SAMPLED_BUCKETS <= 0 || txId == null) return false;
+        if (SAMPLED_BUCKETS >= BUCKETS) return true;
+        return Math.floorMod(mix(txId.hashCode()), BUCKETS) < SAMPLED_BUCKETS;
+    }
+
+    private static boolean alwaysLogged(StepEntry entry) {
+        return entry.outcome() != Outcome.APPROVED
+            || entry.step() == StepId.COMPENSATE
+            || entry.step() == StepId.RECONCILE
+            || entry.step() == StepId.FAILOVER_HANDLER;
+    }
+
+    /**
+     * Spreads sequential txIds, which differ only in their last characters, over all buckets.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static Context mdc(String txId, StepId step) {
+        MDC.put(TX_ID, txId);
+        MDC.put(STEP, step.name());
+        return Context.INSTANCE;
+    }
+
+    private enum Context implements AutoCloseable {
+        INSTANCE;
+
+        @Override
+        public void close() {
+            MDC.remove(TX_ID);
+            MDC.remove(STEP);
+        }
+    }
+
+}
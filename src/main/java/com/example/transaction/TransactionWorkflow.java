@@ -1,34 +1,41 @@
 package com.example.transaction;
 
+import com.example.account.StripedAccount;
+import com.example.account.Striping;
+import com.example.metrics.TransactionMetrics;
 import com.example.mock.*;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import kalix.javasdk.annotations.Id;
 import kalix.javasdk.annotations.TypeId;
 import kalix.javasdk.client.ComponentClient;
 import kalix.javasdk.workflow.Workflow;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletionStage;
 
 import static com.example.transaction.TransactionWorkflow.State.Status.*;
+import static com.example.transaction.TransactionWorkflow.State.StepId;
+import static com.example.transaction.TransactionWorkflow.State.Outcome;
 import static com.example.transaction.Transaction.Response.*;
 import static com.example.mock.Validation.Validate;
 import static com.example.mock.Validation.ValidationResult;
 import static com.example.mock.Sanction.Check;
 import static com.example.mock.Sanction.SanctionResult;
 import static com.example.mock.Liquidity.LiquidityResult;
-import static java.time.Duration.ofSeconds;
 
 @TypeId("transaction")
 @Id("txId")
 @RequestMapping("/transaction/{txId}")
 public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
 
-    private static final Logger log = LoggerFactory.getLogger(TransactionWorkflow.class);
-
     final private ComponentClient client;
 
     public TransactionWorkflow(ComponentClient client) {
@@ -38,243 +45,340 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
     @Override
     public WorkflowDef<State> definition() {
 
-        Step validationCheck = step("validate-transaction")
-            .call(Validate.Transaction.class, cmd -> {
-                log.info("Validating Payment Request: " + cmd);
+        /*
+         * A step that failed over may have left moves between the shards of a striped source
+         * account pending, they are recovered before the payment ends. A payment that failed
+         * over while clearing, or reconciling the clearing, may have moved funds and ends as
+         * CLEARING_UNRESOLVED rather than TRANSACTION_FAILED.
+         */
+        Step failoverHandler = step(PaymentProfiles.FAILOVER_HANDLER_STEP)
+            .asyncCall(() -> {
+                attempt(StepId.FAILOVER_HANDLER);
+                var source = currentState().transaction().from();
+                if (!Striping.isStriped(source)) return CompletableFuture.completedStage("handling failure...");
                 return client.forAction()
+                    .call(StripedAccount::recoverMoves)
+                    .params(source)
+                    .execute();
+            })
+            .andThen(String.class, __ -> effects()
+                .updateState(
+                    recorded(currentState().transition(StepId.FAILOVER_HANDLER, Outcome.FAILED,
+                        currentState().status() == CLEARING_TRANSACTION ? CLEARING_UNRESOLVED : TRANSACTION_FAILED))
+                )
+                .end())
+            .timeout(StepTimeouts.defaultStep());
+
+        /*
+         * Timeouts of the read-only checks follow the latencies observed for each step, steps
+         * moving funds keep the default step timeout, see StepTimeouts.
+         */
+        var workflow = workflow()
+            .timeout(StepTimeouts.workflow())
+            .defaultStepTimeout(StepTimeouts.defaultStep())
+            .failoverTo(PaymentProfiles.FAILOVER_HANDLER_STEP, maxRetries(0))
+            .defaultStepRecoverStrategy(maxRetries(1).failoverTo(PaymentProfiles.FAILOVER_HANDLER_STEP));
+
+        /*
+         * Every profile registers its own copy of its steps, with the recovery configured for
+         * it. Steps left out of the default profile stay registered under their plain name,
+         * so that workflows started before the change can still finish them.
+         */
+        var registered = new HashSet<String>();
+        for (PaymentProfiles.Profile profile : PaymentProfiles.all()) {
+            for (StepId stepId : profile.registeredSteps()) {
+                var name = profile.stepName(stepId);
+                var recovery = profile.recovery(stepId);
+                registered.add(name);
+                if (recovery == null) workflow.addStep(step(stepId, name));
+                else workflow.addStep(step(stepId, name), maxRetries(recovery.maxRetries()).failoverTo(profile.stepName(recovery.failoverTo())));
+            }
+        }
+        for (StepId stepId : StepId.values()) {
+            if (stepId != StepId.FAILOVER_HANDLER && registered.add(stepId.stepName()))
+                workflow.addStep(step(stepId, stepId.stepName()));
+        }
+
+        return workflow.addStep(failoverHandler);
+    }
+
+    private Step step(StepId stepId, String name) {
+        return switch(stepId) {
+            case SCREENING -> screening(name);
+            case VALIDATE_TRANSACTION -> validationCheck(name);
+            case SANCTION_CHECK -> sanctionCheck(name);
+            case RESERVE_FUNDS -> reserveFunds(name);
+            case LIQUIDITY_CHECK -> liquidityCheck(name);
+            case POSTING_TRANSACTION -> posting(name);
+            case TRANSACTION_CLEARING -> clearing(name);
+            case COMPENSATE -> compensate(name);
+            case RECONCILE -> reconcile(name);
+            case FAILOVER_HANDLER -> throw new IllegalArgumentException("The failover handler is shared by all profiles");
+        };
+    }
+
+    /**
+     * Validation and sanction screening are independent checks, so both actions are
+     * called at once and their results joined into a single step transition.
+     */
+    private Step screening(String name) {
+        return step(name)
+            .asyncCall(Validate.Transaction.class, cmd -> {
+                attempt(StepId.SCREENING);
+                var sanctionCheck = new Check.Accounts(cmd.txId(), cmd.source(), cmd.destination());
+                CompletionStage<ValidationResult> validation = Hedging.hedged(StepId.SCREENING, () -> client.forAction()
                     .call(Validation::validate)
-                    .params(cmd);
+                    .params(cmd)
+                    .execute());
+                CompletionStage<SanctionResult> sanctions = Hedging.hedged(StepId.SCREENING, () -> client.forAction()
+                    .call(Sanction::check)
+                    .params(sanctionCheck)
+                    .execute());
+                return validation.thenCombine(sanctions, ScreeningResult::new);
+            })
+            .andThen(ScreeningResult.class, screeningResult -> switch(screeningResult.validation()) {
+                case ValidationResult.Rejected rejected -> reject(StepId.SCREENING, VALIDATION_FAILED, rejected.reason());
+                case ValidationResult.Approved __ -> switch(screeningResult.sanction()) {
+                    case SanctionResult.Rejected rejected -> reject(StepId.SCREENING, SANCTIONS_FAILED, rejected.reason());
+                    case SanctionResult.Approved approved -> proceed(StepId.SCREENING);
+                };
+            })
+            .timeout(StepTimeouts.of(StepId.SCREENING));
+    }
+
+    private Step validationCheck(String name) {
+        return step(name)
+            .asyncCall(Validate.Transaction.class, cmd -> {
+                attempt(StepId.VALIDATE_TRANSACTION);
+                return Hedging.hedged(StepId.VALIDATE_TRANSACTION, () -> client.forAction()
+                    .call(Validation::validate)
+                    .params(cmd)
+                    .execute());
             })
             .andThen(ValidationResult.class, validationResult -> switch(validationResult) {
-                case ValidationResult.Approved __ -> {
-                    var state = currentState();
-                    var sanctionCheck = new Check.Accounts(
-                        state.txId(),
-                        state.transaction().from(), //checking source account
-                        state.transaction().to()    //checking destination account
-                    );
-                    log.info("Validation Request Approved: " + state.txId());
-                    yield effects()
-                        .updateState(
-                            state.logStep("validate-transaction", "approved")
-                                 .withStatus(CHECKING_SANCTIONS)
-                        )
-                        .transitionTo("sanction-check", sanctionCheck);
-                }
-                case ValidationResult.Rejected rejected -> {
-                    log.warn("Validation Request Rejected: " + rejected.reason());
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("validate-transaction", "rejected")
-                                .withStatus(VALIDATION_FAILED)
-                        )
-                        .end();
-                }
-            });
+                case ValidationResult.Approved __ -> proceed(StepId.VALIDATE_TRANSACTION);
+                case ValidationResult.Rejected rejected -> reject(StepId.VALIDATE_TRANSACTION, VALIDATION_FAILED, rejected.reason());
+            })
+            .timeout(StepTimeouts.of(StepId.VALIDATE_TRANSACTION));
+    }
 
-        Step sanctionCheck = step("sanction-check")
-            .call(Check.Accounts.class, cmd -> {
-                log.info("Checking Sanctions: " + cmd);
-                return client.forAction()
+    private Step sanctionCheck(String name) {
+        return step(name)
+            .asyncCall(Check.Accounts.class, cmd -> {
+                attempt(StepId.SANCTION_CHECK);
+                return Hedging.hedged(StepId.SANCTION_CHECK, () -> client.forAction()
                     .call(Sanction::check)
-                    .params(cmd);
+                    .params(cmd)
+                    .execute());
             })
             .andThen(SanctionResult.class, sanctionResult -> switch(sanctionResult) {
-                case SanctionResult.Approved __ -> {
-                    var state = currentState();
-                    var liquidityCheck = new Liquidity.Verify.Funds(
-                        state.txId(),
-                        state.transaction().from(),
-                        state.transaction().amount()
-                    );
-                    log.info("Sanction Check Approved");
-                    yield effects()
-                        .updateState(
-                            state.logStep("sanction-check", "approved")
-                                 .withStatus(VERIFYING_LIQUIDITY)
-                        )
-                        .transitionTo("liquidity-check", liquidityCheck);
-                }
-                case SanctionResult.Rejected rejected -> {
-                    log.warn("Sanction Check Rejected: " + rejected.reason());
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("sanction-check", "rejected")
-                                .withStatus(SANCTIONS_FAILED)
-                        )
-                        .end();
-                }
-            });
+                case SanctionResult.Approved __ -> proceed(StepId.SANCTION_CHECK);
+                case SanctionResult.Rejected rejected -> reject(StepId.SANCTION_CHECK, SANCTIONS_FAILED, rejected.reason());
+            })
+            .timeout(StepTimeouts.of(StepId.SANCTION_CHECK));
+    }
 
-        Step liquidityCheck = step("liquidity-check")
+    /**
+     * Verifies liquidity and reserves the funds with a single entity call. Clearing
+     * then captures the hold, so posting no longer needs its own step.
+     */
+    private Step reserveFunds(String name) {
+        return step(name)
             .call(Liquidity.Verify.Funds.class, cmd -> {
-                log.info("Verifying Liquidity: " + cmd);
+                attempt(StepId.RESERVE_FUNDS);
                 return client.forAction()
-                    .call(Liquidity::verify)
+                    .call(Liquidity::reserve)
                     .params(cmd);
             })
             .andThen(LiquidityResult.class, liquidityResult -> switch(liquidityResult) {
-                case LiquidityResult.Approved __ -> {
-                    var state = currentState();
-                    var postFunds = new Posting.Post.Funds(
-                        state.txId(),
-                        state.transaction().from(),
-                        state.transaction().amount()
-                    );
-                    log.info("Liquidity Check Approved");
-                    yield effects()
-                        .updateState(
-                            state.logStep("liquidity-check", "approved")
-                                 .withStatus(POSTING_TRANSACTION)
-                        )
-                        .transitionTo("posting-transaction", postFunds);
-                }
-                case LiquidityResult.Rejected rejected -> {
-                    log.warn("Liquidity Check Rejected: " + rejected.reason());
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("liquidity-check", "rejected")
-                                .withStatus(LIQUIDITY_FAILED)
-                        )
-                        .end();
-                }
-            });
+                case LiquidityResult.Approved __ -> proceed(StepId.RESERVE_FUNDS);
+                case LiquidityResult.Rejected rejected -> reject(StepId.RESERVE_FUNDS, LIQUIDITY_FAILED, rejected.reason());
+            })
+            .timeout(StepTimeouts.of(StepId.RESERVE_FUNDS));
+    }
 
-        Step posting = step("posting-transaction")
+    /**
+     * Checks liquidity without reserving the funds, to be followed by posting.
+     */
+    private Step liquidityCheck(String name) {
+        return step(name)
+            .asyncCall(Liquidity.Verify.Funds.class, cmd -> {
+                attempt(StepId.LIQUIDITY_CHECK);
+                return Hedging.hedged(StepId.LIQUIDITY_CHECK, () -> client.forAction()
+                    .call(Liquidity::verify)
+                    .params(cmd)
+                    .execute());
+            })
+            .andThen(LiquidityResult.class, liquidityResult -> switch(liquidityResult) {
+                case LiquidityResult.Approved __ -> proceed(StepId.LIQUIDITY_CHECK);
+                case LiquidityResult.Rejected rejected -> reject(StepId.LIQUIDITY_CHECK, LIQUIDITY_FAILED, rejected.reason());
+            })
+            .timeout(StepTimeouts.of(StepId.LIQUIDITY_CHECK));
+    }
+
+    private Step posting(String name) {
+        return step(name)
             .call(Posting.Post.Funds.class, cmd -> {
-                log.info("Posting Transaction: " + cmd);
+                attempt(StepId.POSTING_TRANSACTION);
                 return client.forAction()
                     .call(Posting::post)
                     .params(cmd);
             })
             .andThen(Posting.PostResult.class, postingResult -> switch(postingResult) {
-                case Posting.PostResult.Approved __ -> {
-                    var state = currentState();
-                    var clearing = new Clearing.Clear.Funds(
-                        state.txId(),
-                        state.transaction().to(),
-                        state.transaction().amount()
-                    );
-                    log.info("Transaction Posted");
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("posting-transaction", "approved")
-                                .withStatus(CLEARING_TRANSACTION)
-                        )
-                        .transitionTo("transaction-clearing", clearing);
-                }
-                case Posting.PostResult.Rejected rejected -> {
-                    log.warn("Transaction Posting Rejected: " + rejected.reason());
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("posting-transaction", "rejected")
-                                .withStatus(POSTING_FAILED)
-                        )
-                        .end();
-                }
-            });
+                case Posting.PostResult.Approved __ -> proceed(StepId.POSTING_TRANSACTION);
+                case Posting.PostResult.Rejected rejected -> reject(StepId.POSTING_TRANSACTION, POSTING_FAILED, rejected.reason());
+            })
+            .timeout(StepTimeouts.of(StepId.POSTING_TRANSACTION));
+    }
 
-        Step clearing = step("transaction-clearing")
+    private Step clearing(String name) {
+        return step(name)
             .call(Clearing.Clear.Funds.class, cmd -> {
-                log.info("Clearing Transaction: " + cmd);
+                attempt(StepId.TRANSACTION_CLEARING);
                 return client.forAction()
                     .call(Clearing::clear)
                     .params(cmd);
             })
             .andThen(Clearing.ClearingResult.class, clearingResult -> switch(clearingResult) {
-                case Clearing.ClearingResult.Accepted __ -> {
-                    log.info("Transaction Cleared");
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("transaction-clearing", "approved")
-                                .complete()
-                                .withStatus(TRANSACTION_COMPLETED)
-                        )
-                        .end();
-                }
+                case Clearing.ClearingResult.Accepted __ -> proceed(StepId.TRANSACTION_CLEARING);
                 case Clearing.ClearingResult.Rejected rejected -> {
-                    var state = currentState();
-                    var reversal = new Posting.Post.Reversal(
-                        state.txId(),
-                        state.transaction().from(),
-                        state.transaction().amount()
+                    var state = recorded(
+                        currentState().transition(StepId.TRANSACTION_CLEARING, Outcome.REJECTED, CLEARING_FAILED),
+                        rejected.reason()
                     );
-                    log.warn("Transaction Clearing Rejected: " + rejected.reason());
                     yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("transaction-clearing", "rejected")
-                                .withStatus(CLEARING_FAILED)
-                        )
-                        .transitionTo("compensate", reversal);
+                        .updateState(state)
+                        .transitionTo(state.paymentProfile().stepName(StepId.COMPENSATE));
                 }
-            });
+            })
+            .timeout(StepTimeouts.of(StepId.TRANSACTION_CLEARING));
+    }
 
-        Step compensate = step("compensate")
-            .call(Posting.Post.Reversal.class, cmd -> {
-                log.info("Compensation");
+    /**
+     * Gives back what the transaction took from the source account. The step takes no input
+     * and builds the reversal from the workflow state, as it is also reached by failing over,
+     * which passes no input.
+     */
+    private Step compensate(String name) {
+        return step(name)
+            .call(() -> {
+                var cmd = (Posting.Post.Reversal) input(StepId.COMPENSATE, currentState());
+                attempt(StepId.COMPENSATE);
                 return client.forAction()
                     .call(Posting::reversal)
                     .params(cmd);
             })
             .andThen(Posting.PostResult.class, postingResult -> switch(postingResult) {
-                case Posting.PostResult.Approved __ -> {
-                    log.info("Compensation completed");
-                    yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("compensate", "approved")
-                                .complete()
-                                .withStatus(COMPENSATION_COMPLETED)
-                        )
-                        .end();
-                }
-                case Posting.PostResult.Rejected rejected -> {
-                    log.warn("Compensation failed: " + rejected.reason());
+                case Posting.PostResult.Approved __ -> effects()
+                    .updateState(
+                        recorded(currentState().transition(StepId.COMPENSATE, Outcome.APPROVED, COMPENSATION_COMPLETED))
+                    )
+                    .end();
+                case Posting.PostResult.Rejected rejected -> reject(StepId.COMPENSATE, TRANSACTION_FAILED, rejected.reason());
+            })
+            .timeout(StepTimeouts.of(StepId.COMPENSATE));
+    }
+
+    /**
+     * Resolves a clearing that failed without an answer, reached by failing over from the
+     * clearing step: completes the payment when the destination has the deposit, and
+     * compensates it otherwise, once the destination refuses the deposit. Input-less like
+     * the compensation.
+     */
+    private Step reconcile(String name) {
+        return step(name)
+            .call(() -> {
+                var cmd = (Clearing.Clear.Funds) input(StepId.RECONCILE, currentState());
+                attempt(StepId.RECONCILE);
+                return client.forAction()
+                    .call(Clearing::reconcile)
+                    .params(cmd);
+            })
+            .andThen(Clearing.ClearingResult.class, clearingResult -> switch(clearingResult) {
+                case Clearing.ClearingResult.Accepted __ -> effects()
+                    .updateState(
+                        recorded(currentState().transition(StepId.RECONCILE, Outcome.APPROVED, TRANSACTION_COMPLETED))
+                    )
+                    .end();
+                case Clearing.ClearingResult.Rejected rejected -> {
+                    var state = recorded(
+                        currentState().transition(StepId.RECONCILE, Outcome.REJECTED, CLEARING_FAILED),
+                        rejected.reason()
+                    );
                     yield effects()
-                        .updateState(
-                            currentState()
-                                .logStep("compensate", "rejected")
-                                .complete()
-                                .withStatus(TRANSACTION_FAILED)
-                        )
-                        .end();
+                        .updateState(state)
+                        .transitionTo(state.paymentProfile().stepName(StepId.COMPENSATE));
                 }
-            });
-
-        Step failoverHandler = step("failover-handler")
-            .asyncCall(() -> {
-                log.info("Running workflow failed step for txId: " + currentState().txId());
-                return CompletableFuture.completedStage("handling failure...");
             })
-            .andThen(String.class, __ -> effects()
-                .updateState(
-                    currentState()
-                        .logStep("failover-handler", "handling failure")
-                        .complete()
-                        .withStatus(TRANSACTION_FAILED)
-                )
-                .end())
-            .timeout(ofSeconds(1));
-
-        return workflow()
-            .timeout(ofSeconds(60))
-            .defaultStepTimeout(ofSeconds(30))
-            .failoverTo("failover-handler", maxRetries(0))
-            .defaultStepRecoverStrategy(maxRetries(1).failoverTo("failover-handler"))
-            .addStep(validationCheck)
-            .addStep(sanctionCheck)
-            .addStep(liquidityCheck)
-            .addStep(posting)
-            .addStep(clearing, maxRetries(2).failoverTo("compensate"))
-            .addStep(compensate)
-            .addStep(failoverHandler);
+            .timeout(StepTimeouts.of(StepId.RECONCILE));
+    }
+
+    /**
+     * Moves the payment on to the next step of its profile once a step approved it, or
+     * completes it after the last step.
+     */
+    private Effect.TransitionalEffect<Void> proceed(StepId completed) {
+        var state = currentState();
+        var next = state.paymentProfile().next(completed);
+        if (next == null) {
+            return effects()
+                .updateState(recorded(state.transition(completed, Outcome.APPROVED, TRANSACTION_COMPLETED)))
+                .end();
+        }
+
+        var updated = recorded(state.transition(completed, Outcome.APPROVED, next.inProgress()));
+        return effects()
+            .updateState(updated)
+            .transitionTo(updated.paymentProfile().stepName(next), input(next, updated));
+    }
+
+    private Effect.TransitionalEffect<Void> reject(StepId step, State.Status status, String reason) {
+        return effects()
+            .updateState(recorded(currentState().transition(step, Outcome.REJECTED, status), reason))
+            .end();
+    }
+
+    /**
+     * Input of the given step, built from the payment.
+     */
+    private static Object input(StepId step, State state) {
+        var transaction = state.transaction();
+        return switch(step) {
+            case SCREENING, VALIDATE_TRANSACTION -> new Validate.Transaction(
+                state.txId(),
+                transaction.from(),
+                transaction.to(),
+                transaction.amount()
+            );
+            case SANCTION_CHECK -> new Check.Accounts(
+                state.txId(),
+                transaction.from(), //checking source account
+                transaction.to()    //checking destination account
+            );
+            case RESERVE_FUNDS, LIQUIDITY_CHECK -> new Liquidity.Verify.Funds(
+                state.txId(),
+                transaction.from(),
+                transaction.amount()
+            );
+            case POSTING_TRANSACTION -> new Posting.Post.Funds(
+                state.txId(),
+                transaction.from(),
+                transaction.amount()
+            );
+            case TRANSACTION_CLEARING, RECONCILE -> new Clearing.Clear.Funds(
+                state.txId(),
+                transaction.to(),
+                transaction.amount(),
+                state.fundsReserved() ? transaction.from() : null, //captures the hold on the source account
+                transaction.from()
+            );
+            case COMPENSATE -> new Posting.Post.Reversal(
+                state.txId(),
+                transaction.from(),
+                transaction.amount()
+            );
+            case FAILOVER_HANDLER -> throw new IllegalArgumentException("The failover handler takes no input");
+        };
     }
 
     /**
@@ -302,7 +406,7 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
 
         return effects()
             .updateState(initialized)
-            .transitionTo("validate-transaction", validateRequest)
+            .transitionTo("screening", validateRequest)
             .thenReply(respond(initialized, Status.OK));
     }
     */
@@ -313,24 +417,45 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
     * */
     @PostMapping("/process/{from}/{to}/{amount}")
     public Effect<Response> process(@PathVariable String from, @PathVariable String to, @PathVariable int amount) {
+        return start(from, to, amount, PaymentProfiles.defaultProfile());
+    }
+
+    /**
+     * Processes the payment along the steps of the given payment profile.
+     */
+    @PostMapping("/process/{from}/{to}/{amount}/{profile}")
+    public Effect<Response> processWithProfile(@PathVariable String from, @PathVariable String to, @PathVariable int amount, @PathVariable String profile) {
+        var paymentProfile = PaymentProfiles.get(profile);
+        if (paymentProfile == null)
+            return effects().error("Unknown payment profile [" + profile + "]", io.grpc.Status.Code.INVALID_ARGUMENT);
+        return start(from, to, amount, paymentProfile);
+    }
+
+    private Effect<Response> start(String from, String to, int amount, PaymentProfiles.Profile profile) {
         var txId = commandContext().workflowId();
         var current = currentState();
 
         if (current != null) return effects().reply(respond(current, Status.DUPLICATE));
 
+        //rejected before any state is persisted, RESOURCE_EXHAUSTED is answered as 429 over HTTP
+        switch (AdmissionControl.PAYMENTS.admit(txId, from)) {
+            case SOURCE_RATE_EXCEEDED -> {
+                return effects().error("Too many payments from account [" + from + "], retry later", io.grpc.Status.Code.RESOURCE_EXHAUSTED);
+            }
+            case OVERLOADED -> {
+                return effects().error("Too many payments in progress, retry later", io.grpc.Status.Code.RESOURCE_EXHAUSTED);
+            }
+            case ADMITTED -> {}
+        }
+
         //work around to the above method
         var paymentRequest = new Payment(from, to, "na", amount);
-        var initialized = State.from(txId, paymentRequest).withStatus(VALIDATING_REQUEST);
-        var validateRequest = new Validate.Transaction(
-            txId,
-            from,
-            to,
-            amount
-        );
+        var first = profile.first();
+        var initialized = State.from(txId, paymentRequest, profile.name()).withStatus(first.inProgress());
 
         return effects()
             .updateState(initialized)
-            .transitionTo("validate-transaction", validateRequest)
+            .transitionTo(profile.stepName(first), input(first, initialized))
             .thenReply(respond(initialized, Status.OK));
     }
 
@@ -345,6 +470,36 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
 
     public record Payment(String from, String to, String sequence, int amount) {}
 
+    /**
+     * Called as a step starts. The runtime persisted the current state before running the
+     * step, so the state is published to the status streams, and the payment counts as
+     * started for admission control, from here.
+     */
+    private void attempt(StepId step) {
+        var state = currentState();
+        TransactionMetrics.attempt(step);
+        TransactionTrace.attempt(step, state.txId());
+        AdmissionControl.PAYMENTS.started(state.txId());
+        StatusFeed.publish(state);
+    }
+
+    private static State recorded(State state) {
+        return recorded(state, null);
+    }
+
+    private static State recorded(State state, String reason) {
+        TransactionMetrics.record(state);
+        TransactionTrace.transition(state, reason);
+        if (state.status().isTerminal()) {
+            //no step follows to publish it once persisted, the status streams read it back to confirm it
+            StatusFeed.publish(state);
+            AdmissionControl.PAYMENTS.release(state.txId());
+        }
+        return state;
+    }
+
+    public record ScreeningResult(ValidationResult validation, SanctionResult sanction) {}
+
     private static Response respond(State state, Status status) {
         return switch(status) {
             case OK -> new Received(state.txId(), state.status().name(), state.started());
@@ -359,14 +514,24 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
         ERROR
     }
 
+    /**
+     * Workflow state, persisted on every step transition. The history is kept compact:
+     * steps and outcomes are enums, and each entry records the milliseconds elapsed since
+     * {@code started} rather than an absolute timestamp. The end time and duration of the
+     * transaction are derived from the last entry instead of being stored.
+     *
+     * States persisted before the compact history are read by {@link #read}.
+     *
+     * @param profile name of the payment profile, null for workflows started before profiles
+     */
+    @JsonIgnoreProperties({"ended", "duration"})
     public record State(
         String txId,
         Transaction transaction,
         Status status,
         Long started,
-        Long ended,
-        Long duration,
-        StepStack history
+        StepStack history,
+        String profile
     ) {
 
         public record Transaction(String from, String to, int amount) {}
@@ -376,12 +541,67 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
             public StepStack() { this(List.of()); }
 
             public StepStack push(StepEntry step) {
-                return new StepStack(Stream.concat(steps.stream(), Stream.of(step)).toList());
+                var appended = steps.toArray(new StepEntry[steps.size() + 1]);
+                appended[steps.size()] = step;
+                return new StepStack(Collections.unmodifiableList(Arrays.asList(appended)));
+            }
+
+            public StepEntry last() {
+                return steps.isEmpty() ? null : steps.get(steps.size() - 1);
             }
 
         }
 
-        public record StepEntry(String name, String status, Long finished) {}
+        /**
+         * @param at milliseconds between the start of the transaction and the end of the step
+         */
+        public record StepEntry(StepId step, Outcome outcome, int at) {}
+
+        public enum StepId {
+            SCREENING,
+            VALIDATE_TRANSACTION,
+            SANCTION_CHECK,
+            RESERVE_FUNDS,
+            LIQUIDITY_CHECK,
+            POSTING_TRANSACTION,
+            TRANSACTION_CLEARING,
+            COMPENSATE,
+            FAILOVER_HANDLER,
+            RECONCILE;
+
+            /**
+             * Name of the workflow step, and of the step in payment profiles.
+             */
+            public String stepName() {
+                return name().toLowerCase().replace('_', '-');
+            }
+
+            public static StepId fromStepName(String stepName) {
+                return valueOf(stepName.toUpperCase().replace('-', '_'));
+            }
+
+            /**
+             * Status of a payment while the step is running.
+             */
+            public Status inProgress() {
+                return switch(this) {
+                    case SCREENING, VALIDATE_TRANSACTION -> Status.VALIDATING_REQUEST;
+                    case SANCTION_CHECK -> Status.CHECKING_SANCTIONS;
+                    case RESERVE_FUNDS, LIQUIDITY_CHECK -> Status.VERIFYING_LIQUIDITY;
+                    case POSTING_TRANSACTION -> Status.POSTING_TRANSACTION;
+                    case TRANSACTION_CLEARING -> Status.CLEARING_TRANSACTION;
+                    case COMPENSATE -> Status.CLEARING_FAILED;
+                    case FAILOVER_HANDLER -> Status.TRANSACTION_FAILED;
+                    case RECONCILE -> Status.CLEARING_TRANSACTION;
+                };
+            }
+        }
+
+        public enum Outcome {
+            APPROVED,
+            REJECTED,
+            FAILED
+        }
 
         public enum Status {
             VALIDATING_REQUEST,
@@ -396,50 +616,116 @@ public class TransactionWorkflow extends Workflow<TransactionWorkflow.State> {
             SANCTIONS_FAILED,
             TRANSACTION_COMPLETED,
             TRANSACTION_FAILED,
-            COMPENSATION_COMPLETED
+            COMPENSATION_COMPLETED,
+            /**
+             * The outcome of the clearing is unknown and could not be reconciled: the funds may
+             * have been captured from the source, and credited to the destination or not.
+             */
+            CLEARING_UNRESOLVED;
+
+            public boolean isTerminal() {
+                return switch(this) {
+                    case VALIDATION_FAILED, LIQUIDITY_FAILED, POSTING_FAILED, SANCTIONS_FAILED,
+                         TRANSACTION_COMPLETED, TRANSACTION_FAILED, COMPENSATION_COMPLETED, CLEARING_UNRESOLVED -> true;
+                    default -> false;
+                };
+            }
         }
 
         public State withStatus(Status newStatus) {
-            return new State(txId, transaction, newStatus, started, ended, duration, history);
+            return new State(txId, transaction, newStatus, started, history, profile);
         }
 
-        public State complete() {
-            var ended = System.currentTimeMillis();
-            var duration = ended - started;
-            return new State(txId, transaction, status, started, ended, duration, history);
+        /**
+         * Records the outcome of a step and moves to the next status in a single copy.
+         */
+        public State transition(StepId step, Outcome outcome, Status newStatus) {
+            var at = (int) (System.currentTimeMillis() - started);
+            return new State(txId, transaction, newStatus, started, history.push(new StepEntry(step, outcome, at)), profile);
+        }
+
+        /**
+         * The payment profile, the default one when the profile is unknown or was removed.
+         */
+        public PaymentProfiles.Profile paymentProfile() {
+            var paymentProfile = PaymentProfiles.get(profile);
+            return paymentProfile == null ? PaymentProfiles.defaultProfile() : paymentProfile;
+        }
+
+        /**
+         * Whether the funds were reserved with a hold, rather than withdrawn by posting.
+         */
+        public boolean fundsReserved() {
+            for (StepEntry entry : history.steps())
+                if (entry.step() == StepId.RESERVE_FUNDS && entry.outcome() == Outcome.APPROVED) return true;
+            return false;
+        }
+
+        /**
+         * End of the transaction in epoch milliseconds, or 0 while it is still running.
+         */
+        public long ended() {
+            var last = history.last();
+            return status.isTerminal() && last != null ? started + last.at() : 0L;
+        }
+
+        public long duration() {
+            var ended = ended();
+            return ended == 0 ? 0L : ended - started;
+        }
+
+        /**
+         * Reads states as persisted, including those of workflows started before the compact
+         * history. Their entries hold the step name, a status text and the absolute time the
+         * step ended, and the state also stored {@code ended} and {@code duration}, which are
+         * now derived from the last entry and ignored.
+         */
+        @JsonCreator
+        static State read(
+            @JsonProperty("txId") String txId,
+            @JsonProperty("transaction") Transaction transaction,
+            @JsonProperty("status") Status status,
+            @JsonProperty("started") Long started,
+            @JsonProperty("history") JsonNode history,
+            @JsonProperty("profile") String profile
+        ) {
+            var entries = history == null ? null : history.get("steps");
+            var steps = new StepEntry[entries == null ? 0 : entries.size()];
+            for (int i = 0; i < steps.length; i++) {
+                var entry = entries.get(i);
+                steps[i] = entry.has("step")
+                    ? new StepEntry(
+                        StepId.valueOf(entry.get("step").asText()),
+                        Outcome.valueOf(entry.get("outcome").asText()),
+                        entry.get("at").asInt())
+                    : new StepEntry(
+                        StepId.fromStepName(entry.get("name").asText()),
+                        switch(entry.path("status").asText()) {
+                            case "approved" -> Outcome.APPROVED;
+                            case "rejected" -> Outcome.REJECTED;
+                            default -> Outcome.FAILED;
+                        },
+                        (int) (entry.path("finished").asLong(started) - started));
+            }
+            var stack = new StepStack(Collections.unmodifiableList(Arrays.asList(steps)));
+            return new State(txId, transaction, status, started, stack, profile);
         }
 
         public static State from(String txId, Payment request) {
+            return from(txId, request, null);
+        }
+
+        public static State from(String txId, Payment request, String profile) {
             return new State(
                 txId,
                 new Transaction(request.from(), request.to(), request.amount()),
                 VALIDATING_REQUEST,
                 System.currentTimeMillis(),
-                0L,
-                0L,
-                new StepStack()
-            );
-        }
-
-        public State logStep(String stepName, String stepStatus) {
-            return new State(
-                txId,
-                transaction,
-                status,
-                started,
-                ended,
-                duration,
-                history.push(new StepEntry(stepName, stepStatus, System.currentTimeMillis()))
+                new StepStack(),
+                profile
             );
         }
 
     }
 
-    private static Long transactionDuration(State state) {
-        if(state.ended() == 0 || state.started() == 0) {
-            return 0L;
-        }
-        return state.ended() - state.started();
-    }
-
 }
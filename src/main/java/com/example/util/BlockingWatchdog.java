@@ -0,0 +1,178 @@
+package com.example.util;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Detects code of this service blocking the dispatcher threads of the SDK, for development
+ * and tests.
+ *
+ * The stacks of the dispatcher threads are sampled at a short interval. A thread waiting,
+ * sleeping, blocked on a monitor or in native I/O while a com.example frame is on its stack
+ * is blocked by this service, typically by a join() or get() on a future. Once the same block
+ * has lasted the threshold it is logged with its stack on the payment-service.blocking logger,
+ * and kept until {@link #drain()} for tests to fail on. Blocks shorter than the interval can be
+ * missed, the reported duration is accurate to one interval.
+ */
+public final class BlockingWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger("payment-service.blocking");
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.blocking-watchdog");
+
+    private static final String APPLICATION_PACKAGE = "com.example.";
+
+    private static final Pattern THREADS = Pattern.compile(config.getString("threads"));
+
+    private static final long THRESHOLD_MILLIS = config.getDuration("threshold").toMillis();
+
+    private static final long INTERVAL_MILLIS = config.getDuration("interval").toMillis();
+
+    private static final long THREAD_REFRESH_MILLIS = 1000;
+
+    private static final int MAX_DEPTH = 64;
+
+    private static ScheduledExecutorService sampler;
+
+    private static final List<Blocking> detected = new ArrayList<>();
+
+    //only touched by the sampler thread
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final Map<Long, Block> blocks = new HashMap<>();
+    private static long[] dispatcherIds = new long[0];
+    private static long dispatchersRefreshedAt;
+
+    private BlockingWatchdog() {}
+
+    /**
+     * Starts sampling when payment-service.blocking-watchdog.enabled is set.
+     */
+    public static void startIfEnabled() {
+        if (config.getBoolean("enabled")) start();
+    }
+
+    public static synchronized void start() {
+        if (sampler != null) return;
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "blocking-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(BlockingWatchdog::sample, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("Watching threads [{}] for blocks of {}ms or more", THREADS.pattern(), THRESHOLD_MILLIS);
+    }
+
+    /**
+     * Blocks detected since the last call, including those still going on.
+     */
+    public static synchronized List<Blocking> drain() {
+        var drained = List.copyOf(detected);
+        detected.clear();
+        return drained;
+    }
+
+    private static void sample() {
+        try {
+            var now = System.currentTimeMillis();
+            if (now - dispatchersRefreshedAt >= THREAD_REFRESH_MILLIS) refreshDispatchers(now);
+
+            var infos = threads.getThreadInfo(dispatcherIds, MAX_DEPTH);
+            for (int i = 0; i < infos.length; i++) {
+                var info = infos[i];
+                var frame = info == null ? null : blockingFrame(info);
+                var block = blocks.get(dispatcherIds[i]);
+                if (frame == null) {
+                    blocks.remove(dispatcherIds[i]);
+                } else if (block == null || !block.frame.equals(frame)) {
+                    blocks.put(dispatcherIds[i], new Block(info.getThreadName(), frame, now, info.getStackTrace()));
+                } else if (!block.reported && now - block.since >= THRESHOLD_MILLIS) {
+                    block.reported = true;
+                    report(new Blocking(block.thread, describe(frame), now - block.since, render(block.stack)));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Blocking watchdog sample failed", e);
+        }
+    }
+
+    private static void refreshDispatchers(long now) {
+        var ids = new ArrayList<Long>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0))
+            if (info != null && THREADS.matcher(info.getThreadName()).matches()) ids.add(info.getThreadId());
+        dispatcherIds = ids.stream().mapToLong(Long::longValue).toArray();
+        blocks.keySet().retainAll(ids);
+        dispatchersRefreshedAt = now;
+    }
+
+    /**
+     * @return the innermost frame of this service when the thread is blocked, null otherwise
+     */
+    private static StackTraceElement blockingFrame(ThreadInfo info) {
+        var stack = info.getStackTrace();
+        if (stack.length == 0) return null;
+        var blocked = switch (info.getThreadState()) {
+            case WAITING, TIMED_WAITING, BLOCKED -> true;
+            case RUNNABLE -> stack[0].isNativeMethod();
+            default -> false;
+        };
+        if (!blocked) return null;
+        for (StackTraceElement frame : stack)
+            if (frame.getClassName().startsWith(APPLICATION_PACKAGE)) return frame;
+        return null;
+    }
+
+    private static void report(Blocking blocking) {
+        log.warn("Thread {} has been blocked for {}ms at {}\n{}", blocking.thread(), blocking.millis(), blocking.frame(), blocking.stack());
+        synchronized (BlockingWatchdog.class) {
+            detected.add(blocking);
+        }
+    }
+
+    private static String render(StackTraceElement[] stack) {
+        var rendered = new StringBuilder();
+        for (StackTraceElement frame : stack) rendered.append("\tat ").append(describe(frame)).append('\n');
+        return rendered.toString();
+    }
+
+    private static String describe(StackTraceElement frame) {
+        return frame.getClassName() + "." + frame.getMethodName() + "(" + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+    }
+
+    private static final class Block {
+
+        private final String thread;
+        private final StackTraceElement frame;
+        private final long since;
+        private final StackTraceElement[] stack;
+        private boolean reported;
+
+        private Block(String thread, StackTraceElement frame, long since, StackTraceElement[] stack) {
+            this.thread = thread;
+            this.frame = frame;
+            this.since = since;
+            this.stack = stack;
+        }
+
+    }
+
+    /**
+     * @param frame the frame of this service the thread was blocked in
+     * @param millis how long the thread had been blocked when reported, it may have blocked longer
+     */
+    public record Blocking(String thread, String frame, long millis, String stack) {}
+
+}
@@ -0,0 +1,94 @@
+package com.example.util;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of ids known to exist, with a short-lived negative cache of
+ * ids known to be missing.
+ *
+ * Meant for entities that are never deleted, so a positive entry never goes stale. Negative
+ * entries expire after a short TTL, and are dropped as soon as the id is marked as existing.
+ * When a cache is full an arbitrary entry is evicted to make room.
+ */
+public final class ExistenceCache {
+
+    private final int capacity;
+    private final long negativeTtlMillis;
+
+    private final Set<String> existing = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Long> missing = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ExistenceCache(int capacity, long negativeTtlMillis) {
+        this.capacity = capacity;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    /**
+     * @return {@link Lookup#EXISTS} or {@link Lookup#MISSING} when cached, {@link Lookup#UNKNOWN}
+     * when the entity has to be asked
+     */
+    public Lookup lookup(String id) {
+        if (existing.contains(id)) {
+            hits.increment();
+            return Lookup.EXISTS;
+        }
+        var expiresAt = missing.get(id);
+        if (expiresAt != null) {
+            if (expiresAt > System.currentTimeMillis()) {
+                negativeHits.increment();
+                return Lookup.MISSING;
+            }
+            missing.remove(id, expiresAt);
+        }
+        misses.increment();
+        return Lookup.UNKNOWN;
+    }
+
+    public void markExists(String id) {
+        missing.remove(id);
+        if (existing.size() >= capacity) evictOne(existing.iterator());
+        existing.add(id);
+    }
+
+    public void markMissing(String id) {
+        if (existing.contains(id)) return;
+        if (missing.size() >= capacity) evictOne(missing.keySet().iterator());
+        missing.put(id, System.currentTimeMillis() + negativeTtlMillis);
+    }
+
+    public Stats stats() {
+        var hit = hits.sum();
+        var negativeHit = negativeHits.sum();
+        var miss = misses.sum();
+        var lookups = hit + negativeHit + miss;
+        return new Stats(
+            hit,
+            negativeHit,
+            miss,
+            lookups == 0 ? 0.0 : (double) (hit + negativeHit) / lookups,
+            existing.size(),
+            missing.size()
+        );
+    }
+
+    private static void evictOne(Iterator<String> entries) {
+        if (entries.hasNext()) {
+            entries.next();
+            entries.remove();
+        }
+    }
+
+    public enum Lookup {
+        EXISTS, MISSING, UNKNOWN
+    }
+
+    public record Stats(long hits, long negativeHits, long misses, double hitRate, int size, int negativeSize) {}
+
+}
@@ -1,12 +1,20 @@
 package com.example.util;
 
+import io.grpc.Status;
 import kalix.javasdk.DeferredCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 public class Validator {
 
@@ -20,6 +28,10 @@ public class Validator {
         return new ValidationBuilder(validations);
     }
 
+    public static <T> RuleSet.Builder<T> rules(){
+        return new RuleSet.Builder<>();
+    }
+
     public record ValidationBuilder(List<Validation> validations, List<ServiceValidation> serviceValidations, List<String> reasons, Mode mode){
 
         public ValidationBuilder(List<Validation> validations){
@@ -49,6 +61,17 @@ public class Validator {
             return new ValidationBuilder(validations, serviceValidations, reasons, mode);
         }
 
+        /**
+         * Carries over the violations of a compiled {@link RuleSet} or of a generated validator,
+         * so they are reported together with the validations and service validations of this builder.
+         */
+        public ValidationBuilder violations(Violations violations){
+            if(!violations.failed()) return this;
+            var current = new ArrayList<>(reasons);
+            for(Violation violation : violations.violations()) current.add(violation.message());
+            return new ValidationBuilder(validations, serviceValidations, current, mode);
+        }
+
         public ValidationBuilder resolve(ServiceValidation... serviceValidationsIn){
             var current = new ArrayList<>(serviceValidations);
             current.addAll(Arrays.stream(serviceValidationsIn).toList());
@@ -67,17 +90,15 @@ public class Validator {
         public <T> T handle(BiFunction<Result, String, T> func){
 
             //Nothing to validate
-            if(validations.isEmpty() && serviceValidations.isEmpty())
+            if(validations.isEmpty() && serviceValidations.isEmpty() && reasons.isEmpty())
                 return func.apply(Result.SUCCESS, "");
 
-            var results = new ArrayList<String>();
+            var results = new ArrayList<>(reasons);
 
             //Otherwise iterate over validations, depending on evaluation mode
             for(Validation validation : validations){
-                if(validation.result()){
-                    results.add(validation.message());
-                    if(mode == Mode.FAIL_FAST) break;
-                }
+                if(!results.isEmpty() && mode == Mode.FAIL_FAST) break;
+                if(validation.result()) results.add(validation.message());
             }
 
             if(results.isEmpty() || mode == Mode.PASSIVE)
@@ -88,13 +109,215 @@ public class Validator {
                     }
                 }
 
+            return complete(results, func);
+
+        }
+
+        /**
+         * Non-blocking variant of {@link #handle(BiFunction)}. Local validations are evaluated
+         * first, then every service validation is started at once rather than one after another.
+         * In {@link Mode#FAIL_FAST} the returned stage completes as soon as the first service
+         * validation fails, without waiting for the remaining calls.
+         */
+        public <T> CompletionStage<T> handleAsync(BiFunction<Result, String, T> func){
+
+            var results = new ArrayList<>(reasons);
+
+            for(Validation validation : validations){
+                if(!results.isEmpty() && mode == Mode.FAIL_FAST) break;
+                if(validation.result()) results.add(validation.message());
+            }
+
+            if(serviceValidations.isEmpty() || (!results.isEmpty() && mode == Mode.FAIL_FAST))
+                return CompletableFuture.completedFuture(complete(results, func));
+
+            var pending = serviceValidations.stream()
+                .map(serviceValidation -> serviceValidation.resultAsync().toCompletableFuture())
+                .toList();
+
+            if(mode == Mode.FAIL_FAST) {
+                var firstFailure = new CompletableFuture<List<String>>();
+                var remaining = new AtomicInteger(pending.size());
+                for(int i = 0; i < pending.size(); i++){
+                    var message = serviceValidations.get(i).message();
+                    pending.get(i).thenAccept(failed -> {
+                        if(failed) firstFailure.complete(List.of(message));
+                        else if(remaining.decrementAndGet() == 0) firstFailure.complete(List.of());
+                    });
+                }
+                return firstFailure.thenApply(failures -> complete(failures, func));
+            }
+
+            return CompletableFuture
+                .allOf(pending.toArray(CompletableFuture[]::new))
+                .thenApply(__ -> {
+                    for(int i = 0; i < pending.size(); i++){
+                        if(pending.get(i).join()) results.add(serviceValidations.get(i).message());
+                    }
+                    return complete(results, func);
+                });
+
+        }
+
+        private static <T> T complete(List<String> results, BiFunction<Result, String, T> func){
             if(results.isEmpty()) return func.apply(Result.SUCCESS, "");
 
-            return func.apply(
-                Result.ERROR,
-                results.stream().reduce("", "%s\n%s"::formatted)
-            );
+            var joined = new StringBuilder();
+            for(String result : results) joined.append('\n').append(result);
+            return func.apply(Result.ERROR, joined.toString());
+        }
+
+    }
+
+    /**
+     * A rule set compiled once, typically into a static field, and evaluated per request.
+     * Rules read primitives straight from the input, and messages are only rendered for
+     * violated rules, so a passing evaluation allocates nothing.
+     */
+    public static final class RuleSet<T> {
+
+        private final Rule<T>[] rules;
+        private final Mode mode;
+
+        private RuleSet(Rule<T>[] rules, Mode mode) {
+            this.rules = rules;
+            this.mode = mode;
+        }
+
+        public Violations evaluate(T input){
+            return evaluate(input, "");
+        }
+
+        /**
+         * @param subject substituted for {@code %s} in the message of a violated rule
+         */
+        public Violations evaluate(T input, String subject){
+            List<Violation> violations = null;
+            for(Rule<T> rule : rules){
+                if(rule.violated(input)){
+                    if(violations == null) violations = new ArrayList<>(rules.length);
+                    violations.add(new Violation(rule.code(), rule.message(subject)));
+                    if(mode == Mode.FAIL_FAST) break;
+                }
+            }
+            return violations == null ? Violations.NONE : new Violations(violations);
+        }
+
+        public <R> R check(T input, BiFunction<Result, String, R> func){
+            return check(input, "", func);
+        }
+
+        public <R> R check(T input, String subject, BiFunction<Result, String, R> func){
+            var violations = evaluate(input, subject);
+            if(!violations.failed()) return func.apply(Result.SUCCESS, "");
+            return func.apply(Result.ERROR, violations.message());
+        }
+
+        public static final class Builder<T> {
+
+            private final List<Rule<T>> rules = new ArrayList<>();
+            private Mode mode = Mode.PASSIVE;
+
+            public Builder<T> mode(Mode mode){
+                this.mode = mode;
+                return this;
+            }
+
+            public Builder<T> isTrue(Predicate<T> test, String code, String message){
+                rules.add(new PredicateRule<>(test, code, message));
+                return this;
+            }
+
+            public Builder<T> isFalse(Predicate<T> test, String code, String message){
+                rules.add(new PredicateRule<>(test.negate(), code, message));
+                return this;
+            }
+
+            /**
+             * Violated by an empty or blank value, like {@link Validator#isEmpty(String, String)}.
+             */
+            public Builder<T> isEmpty(Function<T, String> value, String code, String message){
+                rules.add(new PredicateRule<>(t -> value.apply(t).isBlank(), code, message));
+                return this;
+            }
+
+            public Builder<T> isLtZero(ToIntFunction<T> value, String code, String message){
+                rules.add(new IntRule<>(value, i -> i < 0, code, message));
+                return this;
+            }
+
+            public Builder<T> isLtEqZero(ToIntFunction<T> value, String code, String message){
+                rules.add(new IntRule<>(value, i -> i <= 0, code, message));
+                return this;
+            }
+
+            public Builder<T> isGtLimit(ToIntFunction<T> value, int limit, String code, String message){
+                rules.add(new IntRule<>(value, i -> i > limit, code, message));
+                return this;
+            }
+
+            @SuppressWarnings("unchecked")
+            public RuleSet<T> compile(){
+                return new RuleSet<>(rules.toArray(Rule[]::new), mode);
+            }
+
+        }
+
+    }
+
+    public sealed interface Rule<T> {
+        boolean violated(T input);
+
+        String code();
+
+        String template();
+
+        default String message(String subject){
+            return subject.isEmpty() || !template().contains("%s") ? template() : template().formatted(subject);
+        }
+    }
+
+    public record PredicateRule<T>(Predicate<T> test, String code, String template) implements Rule<T> {
+        @Override public boolean violated(T input) { return test.test(input); }
+    }
+
+    public record IntRule<T>(ToIntFunction<T> value, IntPredicate test, String code, String template) implements Rule<T> {
+        @Override public boolean violated(T input) { return test.test(value.applyAsInt(input)); }
+    }
+
+    public record Violation(String code, String message) {}
 
+    public record Violations(List<Violation> violations) {
+
+        public static final Violations NONE = new Violations(List.of());
+
+        public boolean failed() {
+            return !violations.isEmpty();
+        }
+
+        /**
+         * Violations of both, this one's first.
+         */
+        public Violations and(Violations other) {
+            if(!other.failed()) return this;
+            if(!failed()) return other;
+            var combined = new ArrayList<Violation>(violations.size() + other.violations.size());
+            combined.addAll(violations);
+            combined.addAll(other.violations);
+            return new Violations(combined);
+        }
+
+        public List<String> codes() {
+            return violations.stream().map(Violation::code).toList();
+        }
+
+        /**
+         * Messages joined the same way {@link ValidationBuilder#handle(BiFunction)} reports them.
+         */
+        public String message() {
+            var joined = new StringBuilder();
+            for(Violation violation : violations) joined.append('\n').append(violation.message());
+            return joined.toString();
         }
 
     }
@@ -194,20 +417,68 @@ public class Validator {
     public sealed interface ServiceValidation {
         boolean result();
 
+        /**
+         * Starts the service call and completes with the validation outcome; never completes
+         * exceptionally.
+         */
+        CompletionStage<Boolean> resultAsync();
+
         String message();
     }
 
     public record BooleanServiceValidation(DeferredCall<?, ?> call, String reason) implements ServiceValidation {
         @Override public boolean result() {
+            return resultAsync().toCompletableFuture().join();
+        }
+        @Override public CompletionStage<Boolean> resultAsync() {
             try {
                 return call.execute().handle((result, ex) -> {
                     return result == null;
                     // I know this can be simplified, but keeping the code block for
                     // various debugging hre and there
-                }).toCompletableFuture().join();
+                });
+            } catch (Exception e) {
+                log.error("Service validation failed: {}", e.getMessage());
+                return CompletableFuture.completedFuture(true);
+            }
+        }
+        @Override public String message() { return reason; }
+    }
+
+    /**
+     * Existence check answered from the cache when possible. The call is only built and
+     * executed for ids the cache knows nothing about. Only definite outcomes are cached: a
+     * reply as existing, a NOT_FOUND error as missing. Any other error, a timeout or an
+     * unavailable entity, fails this validation without being cached.
+     */
+    public record CachedServiceValidation(ExistenceCache cache, String id, Supplier<DeferredCall<?, ?>> call, String reason) implements ServiceValidation {
+        @Override public boolean result() {
+            return resultAsync().toCompletableFuture().join();
+        }
+        @Override public CompletionStage<Boolean> resultAsync() {
+            return switch(cache.lookup(id)) {
+                case EXISTS -> CompletableFuture.completedFuture(false);
+                case MISSING -> CompletableFuture.completedFuture(true);
+                case UNKNOWN -> lookup();
+            };
+        }
+        private CompletionStage<Boolean> lookup() {
+            try {
+                return call.get().execute().handle((result, ex) -> {
+                    if(ex == null) {
+                        cache.markExists(id);
+                        return false;
+                    }
+                    if(Status.fromThrowable(ex).getCode() == Status.Code.NOT_FOUND) {
+                        cache.markMissing(id);
+                        return true;
+                    }
+                    log.warn("Existence check of [{}] failed, not cached: {}", id, ex.getMessage());
+                    return true;
+                });
             } catch (Exception e) {
-                log.error("Service validation failed: %s".formatted(e.getMessage()));
-                return false;
+                log.error("Service validation failed: {}", e.getMessage());
+                return CompletableFuture.completedFuture(true);
             }
         }
         @Override public String message() { return reason; }
@@ -217,6 +488,10 @@ public class Validator {
         return new BooleanServiceValidation(call, reason);
     }
 
+    public static ServiceValidation entityExists(ExistenceCache cache, String id, Supplier<DeferredCall<?, ?>> call, String reason){
+        return new CachedServiceValidation(cache, id, call, reason);
+    }
+
     public enum Mode {
         FAIL_FAST,     //Execute validations until first failure
         PASSIVE        //Execute all validations, accumulate results
@@ -0,0 +1,100 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces items submitted for the same key into batches, flushed when the first item of a
+ * batch has waited for the window or when the batch reaches its maximum size, whichever comes
+ * first. Every item of a batch completes with the outcome of the batch.
+ *
+ * A batch is flushed with the function passed along with its first item.
+ */
+public final class WindowedBatcher<T, R> {
+
+    private final int maxSize;
+    private final Executor window;
+
+    private final ConcurrentHashMap<String, Batch<T, R>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder items = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public WindowedBatcher(long windowMillis, int maxSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("Batches need room for at least one item");
+        this.maxSize = maxSize;
+        this.window = CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletionStage<R> add(String key, T item, Function<List<T>, CompletionStage<R>> flush) {
+        var result = new CompletableFuture<R>();
+        var full = new ArrayList<Batch<T, R>>(1);
+        pending.compute(key, (__, batch) -> {
+            if (batch == null) {
+                batch = new Batch<>(flush);
+                scheduleFlush(key, batch);
+            }
+            batch.items.add(item);
+            batch.results.add(result);
+            if (batch.items.size() < maxSize) return batch;
+            full.add(batch);
+            return null;
+        });
+        items.increment();
+        if (!full.isEmpty()) flush(full.get(0));
+        return result;
+    }
+
+    public Stats stats() {
+        var itemCount = items.sum();
+        var batchCount = batches.sum();
+        return new Stats(itemCount, batchCount, batchCount == 0 ? 0.0 : (double) itemCount / batchCount);
+    }
+
+    private void scheduleFlush(String key, Batch<T, R> batch) {
+        window.execute(() -> {
+            if (pending.remove(key, batch)) flush(batch);
+        });
+    }
+
+    private void flush(Batch<T, R> batch) {
+        batches.increment();
+        CompletionStage<R> flushed;
+        try {
+            flushed = batch.flush.apply(batch.items);
+        } catch (RuntimeException e) {
+            flushed = CompletableFuture.failedFuture(e);
+        }
+        flushed.whenComplete((outcome, error) -> {
+            for (CompletableFuture<R> result : batch.results) {
+                if (error != null) result.completeExceptionally(error);
+                else result.complete(outcome);
+            }
+        });
+    }
+
+    private static final class Batch<T, R> {
+
+        private final Function<List<T>, CompletionStage<R>> flush;
+        private final List<T> items = new ArrayList<>();
+        private final List<CompletableFuture<R>> results = new ArrayList<>();
+
+        private Batch(Function<List<T>, CompletionStage<R>> flush) {
+            this.flush = flush;
+        }
+
+    }
+
+    /**
+     * @param averageBatchSize items per flushed batch, the factor by which calls are saved
+     */
+    public record Stats(long items, long batches, double averageBatchSize) {}
+
+}
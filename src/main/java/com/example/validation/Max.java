@@ -0,0 +1,21 @@
+package com.example.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Violated when the number is greater than the limit.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface Max {
+
+    long value();
+
+    String code();
+
+    String message();
+
+}
@@ -0,0 +1,25 @@
+package com.example.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a record whose component constraints are checked by a validator generated at build
+ * time, named after the record and its enclosing types, e.g. {@code VerifyFundsValidator}
+ * for {@code Liquidity.Verify.Funds}, in the package of the record.
+ *
+ * The generated {@code validate} method checks the components in declaration order and
+ * returns {@link com.example.util.Validator.Violations}, like an evaluated RuleSet.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Validated {
+
+    /**
+     * Stop at the first violation rather than reporting all of them.
+     */
+    boolean failFast() default false;
+
+}
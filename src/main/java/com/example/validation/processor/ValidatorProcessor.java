@@ -0,0 +1,178 @@
+package com.example.validation.processor;
+
+import com.example.validation.Max;
+import com.example.validation.NotEmpty;
+import com.example.validation.NotNegative;
+import com.example.validation.Positive;
+import com.example.validation.Validated;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the validator of each {@link Validated} record.
+ *
+ * A validator is a final class with a static {@code validate} method: one if statement per
+ * constraint reading the record accessor, and one preallocated Violation per constraint.
+ * Nothing is looked up or reflected on at runtime, so a record that passes is validated
+ * without allocating.
+ *
+ * The processor is compiled ahead of the other sources, see the compile-validator-processor
+ * execution in the pom, and named explicitly by the main compilation only. It is left out of
+ * the jar, so neither the test sources nor consumers of the jar run it.
+ */
+@SupportedAnnotationTypes("com.example.validation.Validated")
+public class ValidatorProcessor extends AbstractProcessor {
+
+    private static final String GENERATED_SUFFIX = "Validator";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Validated.class)) {
+            if (element.getKind() != ElementKind.RECORD) {
+                error(element, "@Validated only applies to records");
+                continue;
+            }
+            var record = (TypeElement) element;
+            var checks = checks(record);
+            if (checks != null) write(record, checks);
+        }
+        return true;
+    }
+
+    private record Check(String condition, String code, String message) {}
+
+    /**
+     * @return the checks of the record components in declaration order, null when a
+     * constraint does not fit its component
+     */
+    private List<Check> checks(TypeElement record) {
+        var checks = new ArrayList<Check>();
+        var valid = true;
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            var accessor = "value." + component.getSimpleName() + "()";
+            var type = component.asType();
+            var integral = switch (type.getKind()) {
+                case BYTE, SHORT, INT, LONG -> true;
+                default -> false;
+            };
+
+            var notEmpty = component.getAnnotation(NotEmpty.class);
+            if (notEmpty != null) {
+                if (type.getKind() == TypeKind.DECLARED && type.toString().equals("java.lang.String"))
+                    checks.add(new Check(accessor + " == null || " + accessor + ".isEmpty()", notEmpty.code(), notEmpty.message()));
+                else valid = invalid(component, "@NotEmpty");
+            }
+            var positive = component.getAnnotation(Positive.class);
+            if (positive != null) {
+                if (integral) checks.add(new Check(accessor + " <= 0", positive.code(), positive.message()));
+                else valid = invalid(component, "@Positive");
+            }
+            var notNegative = component.getAnnotation(NotNegative.class);
+            if (notNegative != null) {
+                if (integral) checks.add(new Check(accessor + " < 0", notNegative.code(), notNegative.message()));
+                else valid = invalid(component, "@NotNegative");
+            }
+            var max = component.getAnnotation(Max.class);
+            if (max != null) {
+                if (integral) checks.add(new Check(accessor + " > " + max.value() + "L", max.code(), max.message()));
+                else valid = invalid(component, "@Max");
+            }
+        }
+        return valid ? checks : null;
+    }
+
+    private void write(TypeElement record, List<Check> checks) {
+        var elements = processingEnv.getElementUtils();
+        var packageName = elements.getPackageOf(record).getQualifiedName().toString();
+        var recordName = nestedName(record, ".");
+        var validatorName = nestedName(record, "") + GENERATED_SUFFIX;
+        var failFast = record.getAnnotation(Validated.class).failFast();
+
+        try (var out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName + "." + validatorName, record)
+                .openWriter())) {
+            out.println("package " + packageName + ";");
+            out.println();
+            out.println("import com.example.util.Validator.Violation;");
+            out.println("import com.example.util.Validator.Violations;");
+            out.println();
+            out.println("import java.util.ArrayList;");
+            out.println("import java.util.List;");
+            out.println();
+            out.println("/**");
+            out.println(" * Checks the constraints declared on {@link " + recordName + "}.");
+            out.println(" */");
+            out.println("@javax.annotation.processing.Generated(\"" + ValidatorProcessor.class.getName() + "\")");
+            out.println("public final class " + validatorName + " {");
+            out.println();
+            for (int i = 0; i < checks.size(); i++) {
+                var check = checks.get(i);
+                out.println("    private static final Violation VIOLATION_" + i + " = new Violation("
+                    + elements.getConstantExpression(check.code()) + ", "
+                    + elements.getConstantExpression(check.message()) + ");");
+            }
+            if (!checks.isEmpty()) out.println();
+            out.println("    private " + validatorName + "() {}");
+            out.println();
+            out.println("    public static Violations validate(" + recordName + " value) {");
+            if (!failFast && !checks.isEmpty()) out.println("        List<Violation> violations = null;");
+            for (int i = 0; i < checks.size(); i++) {
+                out.println("        if (" + checks.get(i).condition() + ") {");
+                if (failFast) {
+                    out.println("            return new Violations(List.of(VIOLATION_" + i + "));");
+                } else {
+                    out.println("            if (violations == null) violations = new ArrayList<>(" + (checks.size() - i) + ");");
+                    out.println("            violations.add(VIOLATION_" + i + ");");
+                }
+                out.println("        }");
+            }
+            if (failFast || checks.isEmpty()) out.println("        return Violations.NONE;");
+            else out.println("        return violations == null ? Violations.NONE : new Violations(violations);");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        } catch (IOException e) {
+            error(record, "Could not write " + validatorName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Simple names of the record and the types enclosing it, outermost type excluded unless
+     * the record is top level.
+     */
+    private static String nestedName(TypeElement record, String separator) {
+        var name = record.getSimpleName().toString();
+        var enclosing = record.getEnclosingElement();
+        while (enclosing instanceof TypeElement type && type.getEnclosingElement() instanceof TypeElement) {
+            name = type.getSimpleName() + separator + name;
+            enclosing = type.getEnclosingElement();
+        }
+        return separator.isEmpty() || !(enclosing instanceof TypeElement outer) ? name : outer.getSimpleName() + separator + name;
+    }
+
+    private boolean invalid(Element component, String constraint) {
+        error(component, constraint + " does not apply to " + component.asType());
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
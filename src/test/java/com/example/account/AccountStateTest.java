@@ -0,0 +1,77 @@
+package com.example.account;
+
+import com.example.account.Account.Credit;
+import com.example.account.Account.Debit;
+import com.example.account.Account.Hold;
+import com.example.account.Account.RecentTransactions;
+import com.example.account.Account.State;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountStateTest {
+
+    @Test
+    public void shouldKeepDebitPastRecentTransactions() {
+        var state = new State("a", 100).withdraw(30).applied("withdraw", "tx-1").debited("tx-1", 30);
+        for (int i = 0; i < RecentTransactions.CAPACITY + 1; i++)
+            state = state.deposit(1).applied("deposit", "deposit-" + i);
+
+        assertThat(state.recent().contains("withdraw", "tx-1")).isFalse();
+        assertThat(state.findDebit("tx-1")).isEqualTo(new Debit("tx-1", 30));
+    }
+
+    @Test
+    public void shouldDropSettledDebitOnly() {
+        var state = new State("a", 100).debited("tx-1", 30).debited("tx-2", 20);
+
+        var settled = state.settled("tx-1");
+
+        assertThat(settled.debits()).containsExactly(new Debit("tx-2", 20));
+        assertThat(settled.settled("tx-1")).isSameAs(settled);
+    }
+
+    @Test
+    public void shouldLeaveNoDebitWithoutTransaction() {
+        var state = new State("a", 100);
+
+        assertThat(state.debited(null, 30)).isSameAs(state);
+    }
+
+    @Test
+    public void shouldSettleDebitAndCreditOfMove() {
+        var state = new State("a", 100).debited("rebalance-tx-1", 30).credited("rebalance-tx-2", 20);
+
+        assertThat(state.findCredit("rebalance-tx-2")).isEqualTo(new Credit("rebalance-tx-2", 20));
+        assertThat(state.settled("rebalance-tx-1").debits()).isEmpty();
+        assertThat(state.settled("rebalance-tx-2").credits()).isEmpty();
+        assertThat(state.settled("rebalance-tx-2").debits()).containsExactly(new Debit("rebalance-tx-1", 30));
+    }
+
+    @Test
+    public void shouldReplaceExpiredHoldOfSameId() {
+        var now = System.currentTimeMillis();
+        var state = new State("a", 100).placeHold(new Hold("tx-1", 30, now - 1), now - 10);
+        assertThat(state.available()).isEqualTo(100);
+
+        var replaced = state.placeHold(new Hold("tx-1", 40, now + 60_000), now);
+
+        assertThat(replaced.holds()).containsExactly(new Hold("tx-1", 40, now + 60_000));
+        assertThat(replaced.available()).isEqualTo(60);
+    }
+
+    @Test
+    public void shouldRememberPrunedHoldsAsReleased() {
+        var now = System.currentTimeMillis();
+        var state = new State("a", 100)
+            .placeHold(new Hold("tx-1", 30, now - 1), now - 10)
+            .placeHold(new Hold("tx-2", 20, now + 60_000), now - 10);
+
+        var pruned = state.placeHold(new Hold("tx-3", 10, now + 60_000), now);
+
+        assertThat(pruned.holds()).extracting(Hold::holdId).containsExactly("tx-2", "tx-3");
+        assertThat(pruned.recent().contains("release", "tx-1")).isTrue();
+        assertThat(pruned.recent().contains("release", "tx-2")).isFalse();
+    }
+
+}
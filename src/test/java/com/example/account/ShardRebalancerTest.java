@@ -0,0 +1,34 @@
+package com.example.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardRebalancerTest {
+
+    @Test
+    public void shouldReadTransactionOfMove() {
+        var moveId = ShardRebalancer.moveId("tx-1", "merchant#2", 40);
+
+        assertThat(ShardRebalancer.isMove(moveId)).isTrue();
+        assertThat(ShardRebalancer.moveTxId(moveId, "merchant#2", 40)).isEqualTo("tx-1");
+    }
+
+    @Test
+    public void shouldNotReadMoveOfOtherDonorOrAmount() {
+        var moveId = ShardRebalancer.moveId("tx-1", "merchant#2", 40);
+
+        assertThat(ShardRebalancer.moveTxId(moveId, "merchant#1", 40)).isNull();
+        assertThat(ShardRebalancer.moveTxId(moveId, "merchant#2", 4)).isNull();
+        assertThat(ShardRebalancer.moveTxId("tx-1", "merchant#2", 40)).isNull();
+        assertThat(ShardRebalancer.moveTxId("rebalance--merchant#2-40", "merchant#2", 40)).isNull();
+    }
+
+    @Test
+    public void shouldKeepTransactionIdsWithDashes() {
+        var moveId = ShardRebalancer.moveId("tx-1-merchant#2-40", "merchant#2", 40);
+
+        assertThat(ShardRebalancer.moveTxId(moveId, "merchant#2", 40)).isEqualTo("tx-1-merchant#2-40");
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.example.sanctions;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A listed name reported as not listed lets a sanctioned payment through, so every entry of
+ * a loaded list must be found, whatever its case and punctuation.
+ */
+public class ScreeningIndexTest {
+
+    private static final List<String> LISTED = List.of(
+        "Acme Trading Co.",
+        "O'Brien, Patrick",
+        "Jean-Luc Dupont",
+        "M\u00dcLLER GmbH",
+        "ACC-0042-SANCTIONED",
+        "sanctioned-account-7"
+    );
+
+    @Test
+    public void shouldFindEveryListedEntry() throws Exception {
+        var names = new ArrayList<>(LISTED);
+        for (int i = 0; i < 50_000; i++) names.add("Listed Party " + i);
+        var index = load(names);
+
+        assertThat(index.size()).isEqualTo(names.size());
+        for (String name : names) assertThat(index.contains(name)).as(name).isTrue();
+    }
+
+    @Test
+    public void shouldFindCaseAndPunctuationVariants() throws Exception {
+        var index = load(LISTED);
+
+        for (String variant : List.of(
+            "acme trading co", "ACME TRADING CO.", "Acme-Trading-Co", "  acme   trading, co ",
+            "o brien patrick", "OBRIEN PATRICK",
+            "jean luc dupont", "JEAN-LUC DUPONT",
+            "m\u00fcller gmbh", "M\u00fcller G.m.b.H.",
+            "acc0042sanctioned", "acc 0042 sanctioned",
+            "SANCTIONED_ACCOUNT_7"))
+            assertThat(index.contains(variant)).as(variant).isTrue();
+    }
+
+    @Test
+    public void shouldNotFindUnlistedNames() throws Exception {
+        var names = new ArrayList<String>();
+        for (int i = 0; i < 50_000; i++) names.add("Listed Party " + i);
+        var index = load(names);
+
+        for (String name : List.of("Acme Trading", "Acme Trading Company", "Patrick", "Listed Party", "Listed Party 50000", "", "   "))
+            assertThat(index.contains(name)).as(name).isFalse();
+        for (int i = 50_000; i < 150_000; i++)
+            assertThat(index.contains("Listed Party " + i)).as("Listed Party " + i).isFalse();
+    }
+
+    @Test
+    public void shouldSkipBlankLinesAndDuplicates() throws Exception {
+        var index = load(List.of("", "Acme Trading Co.", "   ", "acme trading co", "ACME-TRADING-CO", "Jean-Luc Dupont"));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.contains("Acme Trading Co.")).isTrue();
+        assertThat(index.contains("Jean-Luc Dupont")).isTrue();
+        assertThat(index.offHeapBytes()).isPositive();
+    }
+
+    @Test
+    public void shouldFindNothingInEmptyList() throws Exception {
+        assertThat(ScreeningIndex.EMPTY.contains("Acme Trading Co.")).isFalse();
+        assertThat(load(List.of()).contains("Acme Trading Co.")).isFalse();
+    }
+
+    private static ScreeningIndex load(List<String> names) throws Exception {
+        Path file = Files.createTempFile("sanctions", ".txt");
+        try {
+            Files.write(file, names, StandardCharsets.UTF_8);
+            return ScreeningIndex.load(file, "test");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.example.transaction;
+
+import com.example.transaction.AdmissionControl.Admission;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time is driven by hand: buckets refill at 1 token per second, payments not started after
+ * 5 seconds are given up on, and started ones expire after a minute.
+ */
+public class AdmissionControlTest {
+
+    private static final Duration WORKFLOW_TIMEOUT = Duration.ofMinutes(1);
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void shouldShedSourceOverItsRate() {
+        var admission = admission("per-source { rate = 1, burst = 2 }");
+
+        assertThat(admission.admit("tx-1", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-2", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-3", "a")).isEqualTo(Admission.SOURCE_RATE_EXCEEDED);
+        assertThat(admission.admit("tx-4", "b")).isEqualTo(Admission.ADMITTED);
+
+        advance(1000);
+        assertThat(admission.admit("tx-3", "a")).isEqualTo(Admission.ADMITTED);
+
+        assertThat(admission.stats().admitted()).isEqualTo(4);
+        assertThat(admission.stats().shedSourceRate()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotChargeRedeliveredStartTwice() {
+        var admission = admission("per-source { rate = 1, burst = 1 }");
+
+        assertThat(admission.admit("tx-1", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-1", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-2", "a")).isEqualTo(Admission.SOURCE_RATE_EXCEEDED);
+
+        assertThat(admission.stats().admitted()).isEqualTo(1);
+        assertThat(admission.stats().starting()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountInFlightOnceStarted() {
+        var admission = admission("max-in-flight = 2");
+
+        admission.admit("tx-1", "a");
+        assertThat(admission.stats().starting()).isEqualTo(1);
+        assertThat(admission.stats().inFlight()).isZero();
+
+        admission.started("tx-1");
+        admission.started("tx-1");
+        assertThat(admission.stats().starting()).isZero();
+        assertThat(admission.stats().inFlight()).isEqualTo(1);
+
+        admission.release("tx-1");
+        assertThat(admission.stats().inFlight()).isZero();
+    }
+
+    @Test
+    public void shouldNotCountStepsOfPaymentsAdmittedElsewhere() {
+        var admission = admission("");
+
+        admission.started("tx-1");
+
+        assertThat(admission.stats().inFlight()).isZero();
+    }
+
+    @Test
+    public void shouldShedWhenTooManyStartingOrInFlight() {
+        var admission = admission("max-in-flight = 2");
+
+        assertThat(admission.admit("tx-1", "a")).isEqualTo(Admission.ADMITTED);
+        admission.started("tx-1");
+        assertThat(admission.admit("tx-2", "b")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-3", "c")).isEqualTo(Admission.OVERLOADED);
+
+        admission.release("tx-1");
+        assertThat(admission.admit("tx-3", "c")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.stats().shedOverload()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldGiveBackTokenOfPaymentNeverStarted() {
+        var admission = admission("max-in-flight = 1, per-source { rate = 0.001, burst = 1 }");
+
+        assertThat(admission.admit("tx-1", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-2", "a")).isEqualTo(Admission.OVERLOADED);
+
+        advance(5001);
+        assertThat(admission.admit("tx-2", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.stats().notStarted()).isEqualTo(1);
+
+        //the token of tx-1 was spent again by tx-2, a started payment keeps its token
+        admission.started("tx-2");
+        advance(5001);
+        admission.release("tx-2");
+        assertThat(admission.admit("tx-3", "a")).isEqualTo(Admission.SOURCE_RATE_EXCEEDED);
+        assertThat(admission.stats().notStarted()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldChargeStartRedeliveredAfterItWasGivenUp() {
+        var admission = admission("per-source { rate = 0.001, burst = 1 }");
+
+        admission.admit("tx-1", "a");
+        advance(5001);
+
+        assertThat(admission.admit("tx-1", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.admit("tx-2", "a")).isEqualTo(Admission.SOURCE_RATE_EXCEEDED);
+        assertThat(admission.stats().admitted()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldExpireInFlightAfterWorkflowTimeout() {
+        var admission = admission("max-in-flight = 1");
+        admission.admit("tx-1", "a");
+        admission.started("tx-1");
+
+        advance(WORKFLOW_TIMEOUT.toMillis());
+        assertThat(admission.admit("tx-2", "b")).isEqualTo(Admission.OVERLOADED);
+
+        advance(1000);
+        assertThat(admission.admit("tx-2", "b")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.stats().inFlight()).isZero();
+    }
+
+    @Test
+    public void shouldOnlyDropRefilledBuckets() {
+        var admission = admission("per-source { rate = 1, burst = 1, max-sources = 2 }");
+        admission.admit("tx-1", "a");
+        admission.admit("tx-2", "b");
+
+        advance(1000);
+        //"a" and "b" refilled and are dropped, recreated full they admit exactly as before
+        assertThat(admission.admit("tx-3", "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.stats().trackedSources()).isEqualTo(1);
+        assertThat(admission.admit("tx-4", "a")).isEqualTo(Admission.SOURCE_RATE_EXCEEDED);
+
+        admission.admit("tx-5", "b");
+        admission.admit("tx-6", "c");
+        advance(1000);
+        admission.admit("tx-7", "d");
+        assertThat(admission.stats().trackedSources()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAdmitEverythingWhenDisabled() {
+        var admission = admission("enabled = false, max-in-flight = 1, per-source { burst = 1 }");
+
+        for (int i = 0; i < 10; i++)
+            assertThat(admission.admit("tx-" + i, "a")).isEqualTo(Admission.ADMITTED);
+        assertThat(admission.stats().starting()).isZero();
+    }
+
+    private AdmissionControl admission(String overrides) {
+        var config = ConfigFactory.parseString(overrides)
+            .withFallback(ConfigFactory.load().getConfig("payment-service.admission"));
+        return new AdmissionControl(config, WORKFLOW_TIMEOUT, now::get);
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.example.transaction;
+
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HedgingTest {
+
+    private static final StepId STEP = StepId.SANCTION_CHECK;
+
+    @Test
+    public void shouldNotHedgeCallAnsweringInTime() throws Exception {
+        var calls = new AtomicInteger();
+        var result = Hedging.hedged(STEP, 50, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("first");
+        });
+
+        assertThat(get(result)).isEqualTo("first");
+        Thread.sleep(100);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void shouldTakeHedgedCallWhenFirstIsSlow() throws Exception {
+        var first = new CompletableFuture<String>();
+        var result = Hedging.hedged(STEP, 10, calls(first, CompletableFuture.completedFuture("second")));
+
+        assertThat(get(result)).isEqualTo("second");
+        first.complete("first");
+        assertThat(get(result)).isEqualTo("second");
+    }
+
+    @Test
+    public void shouldTakeFirstAnswerAfterHedging() throws Exception {
+        var first = new CompletableFuture<String>();
+        var second = new CompletableFuture<String>();
+        var issued = new AtomicInteger();
+        var responses = List.of(first, second);
+        var result = Hedging.hedged(STEP, 10, () -> responses.get(issued.getAndIncrement()));
+
+        while (issued.get() < 2) Thread.sleep(5);
+        first.complete("first");
+        second.complete("second");
+
+        assertThat(get(result)).isEqualTo("first");
+    }
+
+    @Test
+    public void shouldSucceedWhenOnlyOneCallFails() throws Exception {
+        var first = new CompletableFuture<String>();
+        var second = new CompletableFuture<String>();
+        var issued = new AtomicInteger();
+        var responses = List.of(first, second);
+        var result = Hedging.hedged(STEP, 10, () -> responses.get(issued.getAndIncrement()));
+
+        while (issued.get() < 2) Thread.sleep(5);
+        first.completeExceptionally(new IllegalStateException("unavailable"));
+        assertThat(result.toCompletableFuture().isDone()).isFalse();
+        second.complete("second");
+
+        assertThat(get(result)).isEqualTo("second");
+    }
+
+    @Test
+    public void shouldFailWhenBothCallsFail() throws Exception {
+        var first = new CompletableFuture<String>();
+        var second = new CompletableFuture<String>();
+        var issued = new AtomicInteger();
+        var responses = List.of(first, second);
+        var result = Hedging.hedged(STEP, 10, () -> responses.get(issued.getAndIncrement()));
+
+        while (issued.get() < 2) Thread.sleep(5);
+        first.completeExceptionally(new IllegalStateException("first unavailable"));
+        second.completeExceptionally(new IllegalStateException("second unavailable"));
+
+        assertThatThrownBy(() -> get(result))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseMessage("second unavailable");
+    }
+
+    private static Supplier<CompletionStage<String>> calls(CompletableFuture<String> first, CompletableFuture<String> second) {
+        var issued = new AtomicInteger();
+        return () -> issued.getAndIncrement() == 0 ? first : second;
+    }
+
+    private static String get(CompletionStage<String> result) throws Exception {
+        return result.toCompletableFuture().get(1, TimeUnit.SECONDS);
+    }
+
+}
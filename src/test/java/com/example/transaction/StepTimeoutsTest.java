@@ -0,0 +1,47 @@
+package com.example.transaction;
+
+import com.example.transaction.TransactionWorkflow.State.StepId;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StepTimeoutsTest {
+
+    private static final Config config = ConfigFactory.load().getConfig("payment-service.workflow.step-timeouts");
+
+    private final long minSamples = config.getLong("min-samples");
+    private final double multiplier = config.getDouble("p99-multiplier");
+    private final Duration floor = config.getDuration("floor");
+    private final Duration ceiling = config.getDuration("ceiling");
+
+    @Test
+    public void shouldUseDefaultUntilEnoughSamples() {
+        assertThat(StepTimeouts.of(0, 0)).isEqualTo(StepTimeouts.defaultStep());
+        assertThat(StepTimeouts.of(minSamples - 1, ceiling.toMillis())).isEqualTo(StepTimeouts.defaultStep());
+    }
+
+    @Test
+    public void shouldScaleP99Latency() {
+        var p99 = floor.toMillis();
+        assertThat(StepTimeouts.of(minSamples, p99)).isEqualTo(Duration.ofMillis((long) Math.ceil(p99 * multiplier)));
+    }
+
+    @Test
+    public void shouldClampToFloorAndCeiling() {
+        assertThat(StepTimeouts.of(minSamples, 0)).isEqualTo(floor);
+        assertThat(StepTimeouts.of(minSamples, 1)).isEqualTo(floor);
+        assertThat(StepTimeouts.of(minSamples, ceiling.toMillis())).isEqualTo(ceiling);
+        assertThat(StepTimeouts.of(minSamples, Long.MAX_VALUE / 4)).isEqualTo(ceiling);
+    }
+
+    @Test
+    public void shouldKeepStepsMovingFundsOnDefault() {
+        for (var step : new StepId[]{StepId.RESERVE_FUNDS, StepId.POSTING_TRANSACTION, StepId.TRANSACTION_CLEARING, StepId.COMPENSATE})
+            assertThat(StepTimeouts.of(step)).as(step.stepName()).isEqualTo(StepTimeouts.defaultStep());
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void shouldStartFullAndAllowBurst() {
+        var bucket = new TokenBucket(10, 3, now::get);
+
+        assertThat(bucket.isFull()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+        assertThat(bucket.isFull()).isFalse();
+    }
+
+    @Test
+    public void shouldRefillAtRate() {
+        var bucket = new TokenBucket(10, 1, now::get);
+        assertThat(bucket.tryAcquire()).isTrue();
+
+        advance(99);
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        advance(1);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void shouldNotRefillBeyondBurst() {
+        var bucket = new TokenBucket(10, 2, now::get);
+        advance(60_000);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void shouldRefundUpToBurst() {
+        var bucket = new TokenBucket(10, 2, now::get);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        bucket.refund();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        bucket.refund();
+        bucket.refund();
+        bucket.refund();
+        assertThat(bucket.isFull()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void shouldBeFullAgainOnceRefilled() {
+        var bucket = new TokenBucket(10, 2, now::get);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        advance(100);
+        assertThat(bucket.isFull()).isFalse();
+        advance(100);
+        assertThat(bucket.isFull()).isTrue();
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+}
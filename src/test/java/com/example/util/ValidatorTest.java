@@ -0,0 +1,180 @@
+package com.example.util;
+
+import com.example.util.Validator.Mode;
+import com.example.util.Validator.Result;
+import com.example.util.Validator.RuleSet;
+import com.example.util.Validator.Violations;
+import kalix.javasdk.DeferredCall;
+import kalix.javasdk.Metadata;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.util.Validator.entityExists;
+import static com.example.util.Validator.isTrue;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ValidatorTest {
+
+    record Request(String txId, String account, int amount) {}
+
+    private static RuleSet<Request> rules(Mode mode) {
+        return Validator.<Request>rules()
+            .isEmpty(Request::txId, "TX_ID_REQUIRED", "Transaction ID is Required")
+            .isEmpty(Request::account, "ACCOUNT_REQUIRED", "Account [%s] is Required")
+            .isLtEqZero(Request::amount, "AMOUNT_NOT_POSITIVE", "Amount must be greater than 0")
+            .isGtLimit(Request::amount, 1000, "AMOUNT_OVER_LIMIT", "Amount over limit")
+            .mode(mode)
+            .compile();
+    }
+
+    @Test
+    public void shouldPassValidInputWithoutViolations() {
+        assertThat(rules(Mode.PASSIVE).evaluate(new Request("tx-1", "a", 10))).isSameAs(Violations.NONE);
+        assertThat(rules(Mode.FAIL_FAST).evaluate(new Request("tx-1", "a", 10))).isSameAs(Violations.NONE);
+    }
+
+    @Test
+    public void shouldReportEveryViolationInOrderWhenPassive() {
+        var violations = rules(Mode.PASSIVE).evaluate(new Request("", "", 0), "source");
+
+        assertThat(violations.failed()).isTrue();
+        assertThat(violations.codes()).containsExactly("TX_ID_REQUIRED", "ACCOUNT_REQUIRED", "AMOUNT_NOT_POSITIVE");
+        assertThat(violations.message())
+            .isEqualTo("\nTransaction ID is Required\nAccount [source] is Required\nAmount must be greater than 0");
+    }
+
+    @Test
+    public void shouldStopAtFirstViolationWhenFailFast() {
+        var violations = rules(Mode.FAIL_FAST).evaluate(new Request("tx-1", "", 2000));
+
+        assertThat(violations.codes()).containsExactly("ACCOUNT_REQUIRED");
+    }
+
+    @Test
+    public void shouldTreatBlankAsEmptyLikeLegacyValidation() {
+        assertThat(rules(Mode.PASSIVE).evaluate(new Request("  ", "\t", 10)).codes())
+            .containsExactly("TX_ID_REQUIRED", "ACCOUNT_REQUIRED");
+        assertThat(Validator.isEmpty("  ", "blank").result()).isTrue();
+    }
+
+    @Test
+    public void shouldCheckLikeLegacyHandle() {
+        var request = new Request("", "a", 0);
+        var legacy = Validator
+            .validate(
+                Validator.isEmpty(request.txId(), "Transaction ID is Required"),
+                Validator.isEmpty(request.account(), "Account [%s] is Required"),
+                Validator.isLtEqZero(request.amount(), "Amount must be greater than 0"))
+            .handle((result, err) -> result + err);
+
+        String checked = rules(Mode.PASSIVE).check(request, (result, err) -> result + err);
+        String passed = rules(Mode.PASSIVE).check(new Request("tx-1", "a", 1), (result, err) -> result + err);
+
+        assertThat(checked).isEqualTo(legacy);
+        assertThat(passed).isEqualTo(Result.SUCCESS.name());
+    }
+
+    @Test
+    public void shouldWaitForEveryServiceValidationWhenPassive() throws Exception {
+        var first = new CompletableFuture<Object>();
+        var second = new CompletableFuture<Object>();
+
+        var result = Validator.start()
+            .validate(isTrue(true, "local"))
+            .resolve(entityExists(call(first), "first"), entityExists(call(second), "second"))
+            .handleAsync((status, err) -> status + err);
+
+        second.completeExceptionally(new IllegalStateException("not found"));
+        assertThat(result.toCompletableFuture().isDone()).isFalse();
+        first.completeExceptionally(new IllegalStateException("not found"));
+
+        assertThat(get(result)).isEqualTo("ERROR\nlocal\nfirst\nsecond");
+    }
+
+    @Test
+    public void shouldCompleteOnFirstServiceFailureWhenFailFast() throws Exception {
+        var first = new CompletableFuture<Object>();
+        var second = new CompletableFuture<Object>();
+
+        var result = Validator.start()
+            .resolve(entityExists(call(first), "first"), entityExists(call(second), "second"))
+            .mode(Mode.FAIL_FAST)
+            .handleAsync((status, err) -> status + err);
+
+        second.completeExceptionally(new IllegalStateException("not found"));
+
+        assertThat(get(result)).isEqualTo("ERROR\nsecond");
+        assertThat(first).isNotDone();
+    }
+
+    @Test
+    public void shouldSucceedOnceEveryServiceValidationPassed() throws Exception {
+        var first = new CompletableFuture<Object>();
+        var second = new CompletableFuture<Object>();
+
+        for (Mode mode : Mode.values()) {
+            var result = Validator.start()
+                .resolve(entityExists(call(first), "first"), entityExists(call(second), "second"))
+                .mode(mode)
+                .handleAsync((status, err) -> status + err);
+
+            first.complete("exists");
+            assertThat(result.toCompletableFuture().isDone()).as(mode.name()).isFalse();
+            second.complete("exists");
+
+            assertThat(get(result)).as(mode.name()).isEqualTo("SUCCESS");
+            first = new CompletableFuture<>();
+            second = new CompletableFuture<>();
+        }
+    }
+
+    @Test
+    public void shouldNotCallServicesAfterLocalFailureWhenFailFast() throws Exception {
+        var calls = new AtomicInteger();
+        var call = new Call<>(CompletableFuture.completedFuture("exists"), calls);
+
+        var failFast = Validator.start()
+            .validate(isTrue(true, "local"))
+            .violations(rules(Mode.PASSIVE).evaluate(new Request("tx-1", "", 1)))
+            .resolve(entityExists(call, "remote"))
+            .mode(Mode.FAIL_FAST)
+            .handleAsync((status, err) -> status + err);
+
+        assertThat(get(failFast)).isEqualTo("ERROR\nAccount [%s] is Required");
+        assertThat(calls).hasValue(0);
+
+        var passive = Validator.start()
+            .validate(isTrue(true, "local"))
+            .resolve(entityExists(call, "remote"))
+            .handleAsync((status, err) -> status + err);
+
+        assertThat(get(passive)).isEqualTo("ERROR\nlocal");
+        assertThat(calls).hasValue(1);
+    }
+
+    private static DeferredCall<Object, Object> call(CompletableFuture<Object> result) {
+        return new Call<>(result, new AtomicInteger());
+    }
+
+    private static String get(CompletionStage<String> result) throws Exception {
+        return result.toCompletableFuture().get(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A component call answering with the given future, counting its executions.
+     */
+    private record Call<O>(CompletableFuture<O> result, AtomicInteger executions) implements DeferredCall<Object, O> {
+        @Override public Object message() { return null; }
+        @Override public Metadata metadata() { return null; }
+        @Override public CompletionStage<O> execute() {
+            executions.incrementAndGet();
+            return result;
+        }
+        @Override public DeferredCall<Object, O> withMetadata(Metadata metadata) { return this; }
+    }
+
+}
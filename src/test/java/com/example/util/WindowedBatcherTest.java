@@ -0,0 +1,132 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WindowedBatcherTest {
+
+    @Test
+    public void shouldFlushItemsOfTheWindowAsOneBatch() throws Exception {
+        var batcher = new WindowedBatcher<Integer, String>(50, 10);
+        var flushed = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        Function<List<Integer>, CompletionStage<String>> flush = items -> {
+            flushed.add(List.copyOf(items));
+            return CompletableFuture.completedFuture("ok");
+        };
+
+        var results = List.of(
+            batcher.add("a", 1, flush),
+            batcher.add("a", 2, flush),
+            batcher.add("a", 3, flush),
+            batcher.add("b", 4, flush));
+
+        for (var result : results) assertThat(result.toCompletableFuture().get(1, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(flushed).containsExactlyInAnyOrder(List.of(1, 2, 3), List.of(4));
+        assertThat(batcher.stats().batches()).isEqualTo(2);
+        assertThat(batcher.stats().items()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldFlushFullBatchWithoutWaitingForTheWindow() throws Exception {
+        var batcher = new WindowedBatcher<Integer, String>(60_000, 2);
+        Function<List<Integer>, CompletionStage<String>> flush = items -> CompletableFuture.completedFuture("ok");
+
+        var first = batcher.add("a", 1, flush);
+        var second = batcher.add("a", 2, flush);
+
+        assertThat(second.toCompletableFuture().get(1, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(first.toCompletableFuture().get(1, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(batcher.stats().batches()).isEqualTo(1);
+    }
+
+    /**
+     * Batches filling up while their window runs out are flushed once, by whichever comes
+     * first, and every item is flushed exactly once.
+     */
+    @Test
+    public void shouldFlushEveryItemOnceWhenFullBatchRacesTheWindow() throws Exception {
+        var batcher = new WindowedBatcher<Integer, String>(1, 2);
+        var flushed = Collections.synchronizedList(new ArrayList<Integer>());
+        Function<List<Integer>, CompletionStage<String>> flush = items -> {
+            flushed.addAll(items);
+            return CompletableFuture.completedFuture("ok");
+        };
+        var threads = Executors.newFixedThreadPool(2);
+        var items = 2_000;
+        try {
+            var results = new ArrayList<CompletableFuture<String>>();
+            for (int i = 0; i < items; i += 2) {
+                var start = new CountDownLatch(1);
+                var item = i;
+                var first = CompletableFuture.supplyAsync(() -> add(batcher, start, item, flush), threads);
+                var second = CompletableFuture.supplyAsync(() -> add(batcher, start, item + 1, flush), threads);
+                start.countDown();
+                results.add(first.thenCompose(result -> result).toCompletableFuture());
+                results.add(second.thenCompose(result -> result).toCompletableFuture());
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertThat(flushed).hasSize(items).doesNotHaveDuplicates();
+        assertThat(batcher.stats().items()).isEqualTo(items);
+    }
+
+    @Test
+    public void shouldFailEveryItemOfAFailedBatch() {
+        var batcher = new WindowedBatcher<Integer, String>(60_000, 3);
+        Function<List<Integer>, CompletionStage<String>> flush =
+            items -> CompletableFuture.failedFuture(new IllegalStateException("unavailable"));
+
+        var results = List.of(
+            batcher.add("a", 1, flush),
+            batcher.add("a", 2, flush),
+            batcher.add("a", 3, flush));
+
+        for (var result : results)
+            assertThatThrownBy(() -> result.toCompletableFuture().get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("unavailable");
+    }
+
+    @Test
+    public void shouldFailEveryItemWhenTheFlushThrows() {
+        var batcher = new WindowedBatcher<Integer, String>(60_000, 2);
+        Function<List<Integer>, CompletionStage<String>> flush = items -> {
+            throw new IllegalStateException("unavailable");
+        };
+
+        var first = batcher.add("a", 1, flush);
+        var second = batcher.add("a", 2, flush);
+
+        for (var result : List.of(first, second))
+            assertThatThrownBy(() -> result.toCompletableFuture().get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("unavailable");
+    }
+
+    private static CompletionStage<String> add(WindowedBatcher<Integer, String> batcher, CountDownLatch start, int item,
+                                               Function<List<Integer>, CompletionStage<String>> flush) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return batcher.add("a", item, flush);
+    }
+
+}